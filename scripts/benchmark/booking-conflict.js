@@ -0,0 +1,96 @@
+// Benchmark of the booking conflict query, before and after the booking_conflict compound index.
+// Seeds a separate collection, so it can be run against the development database:
+//   docker-compose exec -T mongo_db mongo test --quiet --eval "var bookings = 2000000; $(cat scripts/benchmark/booking-conflict.js)"
+
+var total = typeof bookings === 'number' ? bookings : 2000000;
+var rooms = typeof roomCount === 'number' ? roomCount : 1000;
+var runs = typeof queries === 'number' ? queries : 2000;
+var collection = db.getCollection('booking_benchmark');
+var origin = ISODate('2022-01-01T00:00:00Z').getTime();
+var day = 24 * 60 * 60 * 1000;
+var statuses = ['BOOKED', 'BOOKED', 'BOOKED', 'CANCELLED', 'OVERBOOKED'];
+
+function date(days) {
+    return new Date(origin + days * day);
+}
+
+function seed() {
+    collection.drop();
+    var batch = [];
+    for (var i = 0; i < total; i++) {
+        var start = Math.floor(Math.random() * 3650);
+        batch.push({
+            roomNumber: NumberLong(i % rooms),
+            username: 'user' + (i % 50000),
+            status: statuses[i % statuses.length],
+            startDate: date(start),
+            endDate: date(start + Math.floor(Math.random() * 3))
+        });
+        if (batch.length === 10000) {
+            collection.insertMany(batch, {ordered: false});
+            batch = [];
+        }
+    }
+    if (batch.length > 0) {
+        collection.insertMany(batch, {ordered: false});
+    }
+}
+
+//The query as it was, a three branch $or over the single field indexes.
+function previousQuery(room, start, end) {
+    return {$and: [
+        {roomNumber: room},
+        {$or: [
+            {startDate: {$gte: start, $lte: end}},
+            {endDate: {$gte: start, $lte: end}},
+            {$and: [{startDate: {$lt: start}}, {endDate: {$gt: end}}]}
+        ]},
+        {_id: {$ne: null}},
+        {status: 'BOOKED'}
+    ]};
+}
+
+function currentQuery(room, start, end) {
+    return {roomNumber: room, status: 'BOOKED', startDate: {$lte: end}, endDate: {$gte: start}, _id: {$ne: null}};
+}
+
+function percentile(sorted, p) {
+    return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))];
+}
+
+function measure(label, query) {
+    var latencies = [];
+    var keys = 0;
+    var docs = 0;
+    for (var i = 0; i < runs; i++) {
+        var start = Math.floor(Math.random() * 3650);
+        var filter = query(NumberLong(Math.floor(Math.random() * rooms)), date(start), date(start + 2));
+        var stats = collection.find(filter).explain('executionStats').executionStats;
+        latencies.push(stats.executionTimeMillis);
+        keys += stats.totalKeysExamined;
+        docs += stats.totalDocsExamined;
+    }
+    latencies.sort(function (a, b) { return a - b; });
+    print(label + ': p50 ' + percentile(latencies, 0.5) + ' ms, p99 ' + percentile(latencies, 0.99)
+        + ' ms, keys examined ' + Math.round(keys / runs) + ', docs examined ' + Math.round(docs / runs));
+}
+
+print('Seeding ' + total + ' bookings over ' + rooms + ' rooms');
+seed();
+
+//Indexes of the booking collection before the compound index.
+collection.createIndex({roomNumber: 1});
+collection.createIndex({username: 1});
+collection.createIndex({startDate: 1});
+collection.createIndex({endDate: 1});
+measure('before, previous query', previousQuery);
+measure('before, current query ', currentQuery);
+
+collection.dropIndexes();
+collection.createIndex({username: 1});
+collection.createIndex({endDate: 1});
+collection.createIndex({roomNumber: 1, status: 1, startDate: 1, endDate: 1}, {name: 'booking_conflict'});
+measure('after, previous query ', previousQuery);
+measure('after, current query  ', currentQuery);
+
+collection.drop();
@@ -0,0 +1,63 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.api.dto.BookingRequestDTO;
+import com.alten.booking.api.dto.RoomDTO;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import com.alten.booking.infrastructure.repository.entity.Room;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static BookingRequestDTO bookingRequest() {
+        return BookingRequestDTO.builder()
+                .username("jean")
+                .startDate(LocalDate.now().plusDays(5))
+                .endDate(LocalDate.now().plusDays(7))
+                .roomNumber(237L)
+                .build();
+    }
+
+    static Booking booking() {
+        return Booking.builder()
+                .id("6303c736c2f14e77828504ca")
+                .username("jean")
+                .startDate(LocalDate.now().plusDays(5))
+                .endDate(LocalDate.now().plusDays(7))
+                .roomNumber(237L)
+                .status(BookingStatus.BOOKED)
+                .createdDate(LocalDateTime.now())
+                .updatedDate(LocalDateTime.now())
+                .build();
+    }
+
+    static Room room() {
+        return Room.builder()
+                .id("6303c736c2f14e77828504cb")
+                .roomNumber(237L)
+                .bedrooms(1L)
+                .beds(2L)
+                .guests(2L)
+                .suites(0L)
+                .bathrooms(1L)
+                .createdDate(LocalDateTime.now())
+                .updatedDate(LocalDateTime.now())
+                .build();
+    }
+
+    static RoomDTO roomDTO() {
+        return RoomDTO.builder()
+                .roomNumber(237L)
+                .bedrooms(1L)
+                .beds(2L)
+                .guests(2L)
+                .suites(0L)
+                .bathrooms(1L)
+                .build();
+    }
+}
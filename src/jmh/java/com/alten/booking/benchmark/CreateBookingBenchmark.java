@@ -0,0 +1,35 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.api.dto.BookingRequestDTO;
+import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.business.service.BookingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole createBooking pipeline, from the request to the event produced, with the availability answered by the
+ * repository (cold occupancy index) or by the occupancy index (warm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreateBookingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean warmIndex;
+
+    private BookingService service;
+    private BookingRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        service = Services.bookingService(warmIndex);
+        request = BenchmarkFixtures.bookingRequest();
+    }
+
+    @Benchmark
+    public BookingResponseDTO createBooking() {
+        return service.createBooking(request).block();
+    }
+}
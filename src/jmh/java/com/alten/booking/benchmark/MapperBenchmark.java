@@ -0,0 +1,54 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.api.dto.BookingRequestDTO;
+import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.api.dto.RoomDTO;
+import com.alten.booking.business.mapper.BookingMapper;
+import com.alten.booking.business.mapper.RoomMapper;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private final BookingMapper bookingMapper = Mappers.getMapper(BookingMapper.class);
+    private final RoomMapper roomMapper = Mappers.getMapper(RoomMapper.class);
+    private BookingRequestDTO bookingRequest;
+    private Booking booking;
+    private RoomDTO roomDTO;
+    private Room room;
+
+    @Setup
+    public void setUp() {
+        bookingRequest = BenchmarkFixtures.bookingRequest();
+        booking = BenchmarkFixtures.booking();
+        roomDTO = BenchmarkFixtures.roomDTO();
+        room = BenchmarkFixtures.room();
+    }
+
+    @Benchmark
+    public Booking bookingToEntity() {
+        return bookingMapper.toEntity(bookingRequest);
+    }
+
+    @Benchmark
+    public BookingResponseDTO bookingToDto() {
+        return bookingMapper.toDto(booking);
+    }
+
+    @Benchmark
+    public Room roomToEntity() {
+        return roomMapper.toEntity(roomDTO);
+    }
+
+    @Benchmark
+    public RoomDTO roomToDto() {
+        return roomMapper.toDto(room);
+    }
+}
@@ -0,0 +1,128 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.business.service.BookingMetrics;
+import com.alten.booking.infrastructure.config.KafkaConfig;
+import com.alten.booking.infrastructure.messaging.producer.BookingEventProducer;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.sender.KafkaSender;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking requests answered per second for a burst of {@value #REQUESTS} concurrent requests, against an embedded
+ * broker. Before, each request handed its event to StreamBridge on its event loop thread and was answered as soon as
+ * the asynchronous send returned, without waiting for the ack: {@link #previousSend()}, and
+ * {@link #previousSendAcknowledged()} which also waits for the acks, the guarantee the reactive sender gives. After,
+ * all of them go through the shared reactive sender, batched by linger.ms, and are answered once acknowledged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProducerBenchmark {
+
+    private static final String TOPIC = "booking-operations";
+    private static final int REQUESTS = 64;
+
+    @Param({"0", "5"})
+    public int lingerMs;
+
+    private EmbeddedKafkaBroker broker;
+    //The template behind the kafka binder of StreamBridge, asynchronous like the binder's producer by default.
+    private DefaultKafkaProducerFactory<byte[], byte[]> producerFactory;
+    private KafkaTemplate<byte[], byte[]> template;
+    //As many threads as the reactor-netty event loops, where StreamBridge.send was called.
+    private Scheduler eventLoops;
+    private KafkaSender<byte[], byte[]> sender;
+    private BookingEventProducer reactiveProducer;
+    private ObjectMapper objectMapper;
+    private Booking[] bookings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaBroker(1, false, 3, TOPIC);
+        broker.afterPropertiesSet();
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        producerFactory = new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, lingerMs),
+                new ByteArraySerializer(), new ByteArraySerializer());
+        template = new KafkaTemplate<>(producerFactory);
+        eventLoops = Schedulers.newParallel("event-loop", Runtime.getRuntime().availableProcessors());
+        sender = new KafkaConfig().bookingEventSender(broker.getBrokersAsString(), lingerMs, 65536, "lz4",
+                Duration.ofSeconds(1), 1024);
+        reactiveProducer = new BookingEventProducer(sender, objectMapper,
+                new BookingMetrics(new SimpleMeterRegistry()), TOPIC, null);
+        bookings = new Booking[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            bookings[i] = BenchmarkFixtures.booking().setRoomNumber(100L + i);
+        }
+    }
+
+    //The events previousSend left unacknowledged are not carried over to the next invocation.
+    @TearDown(Level.Invocation)
+    public void flush() {
+        template.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerFactory.destroy();
+        sender.close();
+        eventLoops.dispose();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public Long previousSend() {
+        return Flux.fromArray(bookings)
+                .flatMap(booking -> Mono.fromCallable(() -> template.send(TOPIC, key(booking),
+                                objectMapper.writeValueAsBytes(booking)))
+                        .subscribeOn(eventLoops), REQUESTS)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public Long previousSendAcknowledged() {
+        return Flux.fromArray(bookings)
+                .flatMap(booking -> Mono.fromCallable(() -> template.send(TOPIC, key(booking),
+                                objectMapper.writeValueAsBytes(booking)))
+                        .subscribeOn(eventLoops)
+                        .flatMap(Mono::fromFuture), REQUESTS)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public Long reactiveSend() {
+        return Flux.fromArray(bookings)
+                .flatMap(reactiveProducer::bookingEventOutput, REQUESTS)
+                .count()
+                .block();
+    }
+
+    private static byte[] key(Booking booking) {
+        return String.valueOf(booking.getRoomNumber()).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.business.mapper.BookingMapper;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    //Same settings as the ObjectMapper built by spring boot.
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private Booking booking;
+    private BookingResponseDTO response;
+    private String bookingJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        booking = BenchmarkFixtures.booking();
+        response = Mappers.getMapper(BookingMapper.class).toDto(booking);
+        bookingJson = objectMapper.writeValueAsString(booking);
+    }
+
+    @Benchmark
+    public String writeBooking() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(booking);
+    }
+
+    @Benchmark
+    public Booking readBooking() throws JsonProcessingException {
+        return objectMapper.readValue(bookingJson, Booking.class);
+    }
+
+    @Benchmark
+    public String writeBookingResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(response);
+    }
+}
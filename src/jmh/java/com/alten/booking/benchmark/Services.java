@@ -0,0 +1,69 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.business.mapper.BookingMapper;
+import com.alten.booking.business.mapper.RoomMapper;
+import com.alten.booking.business.service.BookingMetrics;
+import com.alten.booking.business.service.BookingPolicy;
+import com.alten.booking.business.service.BookingPolicyProperties;
+import com.alten.booking.business.service.BookingService;
+import com.alten.booking.business.service.BookingServiceValidator;
+import com.alten.booking.business.service.BookingStatusNotifier;
+import com.alten.booking.business.service.RoomAvailabilityNotifier;
+import com.alten.booking.business.service.RoomCatalogCache;
+import com.alten.booking.business.service.RoomNightService;
+import com.alten.booking.business.service.RoomOccupancyIndex;
+import com.alten.booking.business.service.RoomService;
+import com.alten.booking.business.service.UserBookingsService;
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.memory.InMemoryBookingRepository;
+import com.alten.booking.infrastructure.repository.memory.InMemoryRoomNightRepository;
+import com.alten.booking.infrastructure.repository.memory.InMemoryUserBookingsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mapstruct.factory.Mappers;
+
+import java.time.Clock;
+import java.time.Duration;
+
+//Wires the services by hand over the stand-ins, the way spring would with the default configuration.
+final class Services {
+
+    //The stage timers are kept, they are part of the cost of a request in production.
+    private static final BookingMetrics METRICS = new BookingMetrics(new SimpleMeterRegistry());
+
+    private Services() {
+    }
+
+    static BookingServiceValidator validator() {
+        return validator(StandIns.bookingRepository(), StandIns.broadcaster());
+    }
+
+    static BookingService bookingService(boolean warmIndex) {
+        InMemoryBookingRepository repository = StandIns.bookingRepository();
+        Broadcaster broadcaster = StandIns.broadcaster();
+        RoomOccupancyIndex occupancyIndex = new RoomOccupancyIndex(repository, warmIndex, Duration.ofMinutes(1));
+        if (warmIndex) {
+            occupancyIndex.rebuild().block();
+        }
+        UserBookingsService userBookings = new UserBookingsService(new InMemoryUserBookingsRepository(), repository,
+                broadcaster, Clock.systemDefaultZone(), new SimpleMeterRegistry(), true, Duration.ofSeconds(5),
+                10_000);
+        return new BookingService(repository, Mappers.getMapper(BookingMapper.class), StandIns.producer(),
+                validator(repository, broadcaster), occupancyIndex,
+                new RoomNightService(new InMemoryRoomNightRepository(), repository),
+                new RoomAvailabilityNotifier(broadcaster, new ObjectMapper().findAndRegisterModules(), 32), METRICS,
+                new BookingStatusNotifier(broadcaster, Duration.ofSeconds(10), Duration.ofSeconds(30)),
+                StandIns.occupancyStore(METRICS), userBookings);
+    }
+
+    private static BookingServiceValidator validator(InMemoryBookingRepository bookingRepository,
+                                                     Broadcaster broadcaster) {
+        RoomRepository roomRepository = StandIns.roomRepository(bookingRepository, BenchmarkFixtures.room());
+        RoomCatalogCache cache = new RoomCatalogCache(roomRepository, broadcaster, new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), 10_000);
+        RoomService roomService = new RoomService(roomRepository, Mappers.getMapper(RoomMapper.class), cache);
+        return new BookingServiceValidator(roomService,
+                new BookingPolicy(new BookingPolicyProperties(), Clock.systemDefaultZone()), METRICS);
+    }
+}
@@ -0,0 +1,64 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.business.service.BookingMetrics;
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.messaging.broadcast.LocalBroadcaster;
+import com.alten.booking.infrastructure.messaging.producer.BookingEventPublisher;
+import com.alten.booking.infrastructure.messaging.streams.RoomOccupancyStore;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import com.alten.booking.infrastructure.repository.memory.InMemoryBookingRepository;
+import com.alten.booking.infrastructure.repository.memory.InMemoryRoomRepository;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.stream.binder.kafka.streams.InteractiveQueryService;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * The mongo repositories, redis and kafka of the benchmarks: the in memory repositories and bus of the local profile,
+ * and a producer that only hands the event back, so the benchmarks measure the service code and not the
+ * infrastructure.
+ */
+final class StandIns {
+
+    private StandIns() {
+    }
+
+    static InMemoryRoomRepository roomRepository(InMemoryBookingRepository bookingRepository, Room room) {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository(bookingRepository);
+        repository.save(room).block();
+        return repository;
+    }
+
+    //Empty, so no stay conflicts with the benchmarked bookings.
+    static InMemoryBookingRepository bookingRepository() {
+        return new InMemoryBookingRepository();
+    }
+
+    static BookingEventPublisher producer() {
+        return new BookingEventPublisher() {
+            @Override
+            public Mono<Booking> bookingEventOutput(Booking booking) {
+                return Mono.just(booking);
+            }
+
+            @Override
+            public Mono<BookingGroup> bookingGroupEventOutput(BookingGroup group) {
+                return Mono.just(group);
+            }
+        };
+    }
+
+    //Disabled like in the default configuration, the availability is answered by the index or the repository.
+    static RoomOccupancyStore occupancyStore(BookingMetrics metrics) {
+        return new RoomOccupancyStore(new StaticListableBeanFactory().getBeanProvider(InteractiveQueryService.class),
+                WebClient.builder(), metrics, false, Duration.ofMillis(500), "");
+    }
+
+    static Broadcaster broadcaster() {
+        return new LocalBroadcaster();
+    }
+}
@@ -0,0 +1,27 @@
+package com.alten.booking.benchmark;
+
+import com.alten.booking.business.service.BookingServiceValidator;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+
+    private BookingServiceValidator validator;
+    private Booking booking;
+
+    @Setup
+    public void setUp() {
+        validator = Services.validator();
+        booking = BenchmarkFixtures.booking();
+    }
+
+    @Benchmark
+    public Boolean validateRoomExistsAndDatesAreCorrect() {
+        return validator.validateRoomExistsAndDatesAreCorrect(booking).block();
+    }
+}
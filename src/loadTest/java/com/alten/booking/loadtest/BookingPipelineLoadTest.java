@@ -0,0 +1,123 @@
+package com.alten.booking.loadtest;
+
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The whole pipeline under load, api → producer → kafka → consumer → repositories, in a single JVM: an embedded kafka
+ * broker in place of the event bus of the bench profile, and its in memory repositories and stores in place of mongo
+ * and redis. The results are printed and written to build/reports/loadtest/results.json, so they can be compared
+ * between two branches.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "booking.event-bus=kafka",
+        "booking.consumer.function=${loadtest.consumer.function:bookingEventInput};bookingGroupEventInput",
+        "spring.cloud.stream.function.autodetect=true",
+        "spring.cloud.stream.kafka.binder.brokers=${spring.embedded.kafka.brokers}",
+        "booking.streams.state-dir=${java.io.tmpdir}/booking-load-test"})
+@ActiveProfiles("bench")
+@EmbeddedKafka(partitions = 3, topics = {"booking-operations", "booking-results", "booking-groups"})
+public class BookingPipelineLoadTest {
+
+    private final LoadSettings settings = new LoadSettings();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void bookingPipelineUnderLoad() throws IOException {
+        List<Long> rooms = seedRooms();
+        WebClient client = client();
+        new LoadDriver(client, settings, rooms, "warmup").run(settings.getWarmup());
+
+        LoadDriver driver = new LoadDriver(client, settings, rooms, "load");
+        Duration elapsed = driver.run(settings.getRequests());
+        List<LatencyRecorder.Summary> summaries = driver.getRecorder().summarize(elapsed);
+        report(elapsed, summaries);
+
+        summaries.forEach(summary -> assertTrue(summary.getFailures().keySet().stream()
+                .noneMatch(reason -> reason.startsWith("5")), summary.getSeries() + " failed: " + summary.getFailures()));
+        assertEquals(Map.of(), driver.getRecorder().failures("outcome"), "Bookings without a final status");
+    }
+
+    private List<Long> seedRooms() {
+        List<Long> rooms = LongStream.rangeClosed(1, settings.getRooms())
+                .mapToObj(room -> 1000 + room)
+                .collect(Collectors.toList());
+        roomRepository.saveAll(rooms.stream()
+                        .map(roomNumber -> Room.builder()
+                                .roomNumber(roomNumber)
+                                .guests(2L)
+                                .bedrooms(1L)
+                                .suites(0L)
+                                .beds(1L)
+                                .bathrooms(1L)
+                                .build())
+                        .collect(Collectors.toList()))
+                .then()
+                .block();
+        return rooms;
+    }
+
+    //A connection per operation in flight, and one more for the await of a create.
+    private WebClient client() {
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.builder("load-test")
+                        .maxConnections(settings.getConcurrency() * 2)
+                        .pendingAcquireMaxCount(-1)
+                        .build())
+                .responseTimeout(settings.getAwaitTimeout().plusSeconds(5));
+        return webClientBuilder.clone()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    private void report(Duration elapsed, List<LatencyRecorder.Summary> summaries) throws IOException {
+        System.out.println();
+        System.out.println("Load test: " + settings + ", " + elapsed.toMillis() + " ms, "
+                + String.format("%.1f", settings.getRequests() * 1000.0 / Math.max(1, elapsed.toMillis()))
+                + " operations per second");
+        System.out.println(LatencyRecorder.Summary.header());
+        summaries.forEach(System.out::println);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("settings", settings.toString());
+        results.put("elapsedMillis", elapsed.toMillis());
+        results.put("series", summaries);
+        File file = new File(System.getProperty("loadtest.report", "build/reports/loadtest/results.json"));
+        file.getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, results);
+    }
+}
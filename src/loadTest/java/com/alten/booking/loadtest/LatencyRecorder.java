@@ -0,0 +1,109 @@
+package com.alten.booking.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Every latency of a run, by series, and the failures by reason. All the samples are kept, so the percentiles are exact
+ * and not the decaying ones of the micrometer timers.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+    public void record(String name, long nanos) {
+        series(name).record(nanos);
+    }
+
+    public void failed(String name, String reason) {
+        series(name).failures.merge(reason, 1L, Long::sum);
+    }
+
+    public long count(String name) {
+        return series.containsKey(name) ? series.get(name).size() : 0;
+    }
+
+    public Map<String, Long> failures(String name) {
+        return series.containsKey(name) ? new TreeMap<>(series.get(name).failures) : Map.of();
+    }
+
+    public List<Summary> summarize(Duration elapsed) {
+        return series.entrySet().stream()
+                .map(entry -> entry.getValue().summarize(entry.getKey(), elapsed))
+                .collect(Collectors.toList());
+    }
+
+    private Series series(String name) {
+        return series.computeIfAbsent(name, it -> new Series());
+    }
+
+    private static class Series {
+
+        private final Map<String, Long> failures = new ConcurrentHashMap<>();
+        private long[] samples = new long[1024];
+        private int size;
+
+        synchronized void record(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized Summary summarize(String name, Duration elapsed) {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            double seconds = Math.max(1, elapsed.toMillis()) / 1000.0;
+            return new Summary(name, size, new TreeMap<>(failures), size / seconds,
+                    millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99),
+                    size == 0 ? 0 : sorted[size - 1] / 1e6);
+        }
+
+        //Nearest rank percentile.
+        private static double millis(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Summary {
+
+        private final String series;
+        private final long count;
+        private final Map<String, Long> failures;
+        private final double perSecond;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %8d %10.1f %9.2f %9.2f %9.2f %9.2f  %s", series, count, perSecond,
+                    p50Millis, p95Millis, p99Millis, maxMillis, failures.isEmpty() ? "" : failures);
+        }
+
+        public static String header() {
+            return String.format("%-22s %8s %10s %9s %9s %9s %9s  %s", "series", "count", "per sec",
+                    "p50 ms", "p95 ms", "p99 ms", "max ms", "failures");
+        }
+    }
+}
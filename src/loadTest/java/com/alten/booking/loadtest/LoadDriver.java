@@ -0,0 +1,190 @@
+package com.alten.booking.loadtest;
+
+import com.alten.booking.api.dto.BookingRequestDTO;
+import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.loadtest.LoadSettings.Operation;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static com.alten.booking.api.controller.BookingController.IDEMPOTENCY_KEY_HEADER;
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+
+/**
+ * Drives a mix of operations through the api, as many in flight as the concurrency. The http.* series are the time to
+ * the response of the api, which only accepts the command, and the outcome.* ones the time from the create request to
+ * the final status of the booking, awaited on /booking/{id}/await.
+ * <p>
+ * Every create is made by a new user, and a booking is updated a few times at most, so no user goes over the rate
+ * limit of 10 requests per minute.
+ */
+public class LoadDriver {
+
+    private static final int MAX_UPDATES = 3;
+
+    private final WebClient client;
+    private final LoadSettings settings;
+    private final List<Long> rooms;
+    private final String users;
+    @Getter
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    //Bookings confirmed by this run, to update and cancel.
+    private final Queue<BookedStay> booked = new ConcurrentLinkedQueue<>();
+
+    public LoadDriver(WebClient client, LoadSettings settings, List<Long> rooms, String users) {
+        this.client = client;
+        this.settings = settings;
+        this.rooms = rooms;
+        this.users = users;
+    }
+
+    public Duration run(int operations) {
+        long start = System.nanoTime();
+        Flux.range(0, operations)
+                .flatMap(sequence -> execute(sequence, settings.nextOperation()), settings.getConcurrency())
+                .blockLast();
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    //Updates and cancels fall back to a create until a booking is confirmed.
+    private Mono<Void> execute(int sequence, Operation operation) {
+        switch (operation) {
+            case UPDATE:
+                return withBooked(sequence, this::update);
+            case CANCEL:
+                return withBooked(sequence, this::cancel);
+            case AVAILABILITY:
+                return availability(sequence);
+            default:
+                return create(sequence);
+        }
+    }
+
+    private Mono<Void> withBooked(int sequence, Function<BookedStay, Mono<Void>> operation) {
+        BookedStay stay = booked.poll();
+        return stay == null ? create(sequence) : operation.apply(stay);
+    }
+
+    private Mono<Void> create(int sequence) {
+        String username = users + "-" + sequence;
+        long start = System.nanoTime();
+        return timed("http.create", start, client.post()
+                .uri("/booking")
+                .header("username", username)
+                .header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .bodyValue(stay(username, randomRoom()))
+                .retrieve()
+                .bodyToMono(BookingResponseDTO.class))
+                .flatMap(accepted -> client.get()
+                        .uri("/booking/{id}/await?timeout={timeout}", accepted.getId(),
+                                settings.getAwaitTimeout().toSeconds())
+                        .header("username", username)
+                        .retrieve()
+                        .bodyToMono(BookingResponseDTO.class)
+                        .doOnNext(outcome -> {
+                            recorder.record("outcome." + outcome.getStatus().name().toLowerCase(Locale.ROOT),
+                                    System.nanoTime() - start);
+                            if (BOOKED == outcome.getStatus()) {
+                                booked.add(new BookedStay(outcome.getId(), username, outcome.getRoomNumber(), 0));
+                            }
+                        })
+                        .onErrorResume(error -> {
+                            recorder.failed("outcome", reasonOf(error));
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Void> update(BookedStay stay) {
+        return timed("http.update", System.nanoTime(), client.put()
+                .uri("/booking/{id}", stay.getId())
+                .header("username", stay.getUsername())
+                .header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .bodyValue(stay(stay.getUsername(), stay.getRoomNumber()))
+                .retrieve()
+                .bodyToMono(BookingResponseDTO.class))
+                .doFinally(signal -> {
+                    if (stay.getUpdates() + 1 < MAX_UPDATES) {
+                        booked.add(new BookedStay(stay.getId(), stay.getUsername(), stay.getRoomNumber(),
+                                stay.getUpdates() + 1));
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Void> cancel(BookedStay stay) {
+        return timed("http.cancel", System.nanoTime(), client.delete()
+                .uri("/booking/{id}", stay.getId())
+                .header("username", stay.getUsername())
+                .header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .retrieve()
+                .bodyToMono(BookingResponseDTO.class))
+                .then();
+    }
+
+    private Mono<Void> availability(int sequence) {
+        BookingRequestDTO stay = stay(users + "-" + sequence, randomRoom());
+        return timed("http.availability", System.nanoTime(), client.get()
+                .uri(builder -> builder.path("/booking/room/{roomNumber}/availability")
+                        .queryParam("startDate", stay.getStartDate())
+                        .queryParam("endDate", stay.getEndDate())
+                        .build(stay.getRoomNumber()))
+                .header("username", stay.getUsername())
+                .retrieve()
+                .bodyToMono(Boolean.class))
+                .then();
+    }
+
+    private <T> Mono<T> timed(String series, long start, Mono<T> call) {
+        return call.doOnNext(it -> recorder.record(series, System.nanoTime() - start))
+                .onErrorResume(error -> {
+                    recorder.failed(series, reasonOf(error));
+                    return Mono.empty();
+                });
+    }
+
+    //A stay the booking policy accepts: starting 1 to 30 days from now, for 1 to 3 nights.
+    private static BookingRequestDTO stay(String username, Long roomNumber) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate startDate = LocalDate.now().plusDays(1 + random.nextInt(30));
+        return BookingRequestDTO.builder()
+                .roomNumber(roomNumber)
+                .username(username)
+                .startDate(startDate)
+                .endDate(startDate.plusDays(random.nextInt(3)))
+                .build();
+    }
+
+    private Long randomRoom() {
+        return rooms.get(ThreadLocalRandom.current().nextInt(rooms.size()));
+    }
+
+    private static String reasonOf(Throwable error) {
+        return error instanceof WebClientResponseException
+                ? String.valueOf(((WebClientResponseException) error).getRawStatusCode())
+                : error.getClass().getSimpleName();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class BookedStay {
+
+        private final String id;
+        private final String username;
+        private final Long roomNumber;
+        private final int updates;
+    }
+}
@@ -0,0 +1,72 @@
+package com.alten.booking.loadtest;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The shape of a load test run, read from the loadtest.* system properties, e.g. -Ploadtest.requests=10000 on the
+ * loadTest task.
+ */
+@Getter
+public class LoadSettings {
+
+    public enum Operation {
+        CREATE, UPDATE, CANCEL, AVAILABILITY
+    }
+
+    //Operations run after the warmup ones, a create counts as one with the await of its final status.
+    private final int requests;
+    private final int warmup;
+    //Operations in flight at any time, each of them is one virtual user.
+    private final int concurrency;
+    //Rooms booked by the run, the fewer the rooms the more conflicts.
+    private final int rooms;
+    private final Duration awaitTimeout;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+
+    public LoadSettings() {
+        requests = Integer.getInteger("loadtest.requests", 2000);
+        warmup = Integer.getInteger("loadtest.warmup", 200);
+        concurrency = Integer.getInteger("loadtest.concurrency", 64);
+        rooms = Integer.getInteger("loadtest.rooms", 200);
+        awaitTimeout = Duration.parse(System.getProperty("loadtest.await-timeout", "PT30S"));
+        mix = parseMix(System.getProperty("loadtest.mix", "create:50,update:15,cancel:10,availability:25"));
+        totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("loadtest.mix must give a positive weight to an operation");
+        }
+    }
+
+    public Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        return Operation.CREATE;
+    }
+
+    //create:50,update:15,cancel:10,availability:25, the weights do not need to add up to 100.
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + requests + ", warmup=" + warmup + ", concurrency=" + concurrency + ", rooms=" + rooms
+                + ", mix=" + mix;
+    }
+}
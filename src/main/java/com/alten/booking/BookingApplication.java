@@ -21,9 +21,11 @@ public class BookingApplication implements CommandLineRunner {
 
 	@Override
 	public void run(String... args) {
-		//For the purpose of the test, we assume the hotel has only one room available, room number 237.
-		roomRepository.deleteAll()
-				.then(roomRepository.save(Room.builder()
+		//For the purpose of the test, we assume the hotel has at least room number 237, the other rooms imported through
+		//POST /room/bulk are kept across restarts.
+		roomRepository.existsByRoomNumber(237L)
+				.filter(exists -> !exists)
+				.flatMap(exists -> roomRepository.save(Room.builder()
 						.roomNumber(237L)
 						.guests(4L)
 						.bedrooms(2L)
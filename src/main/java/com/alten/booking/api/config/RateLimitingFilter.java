@@ -1,9 +1,12 @@
 package com.alten.booking.api.config;
 
 import com.alten.booking.business.exception.TooManyRequestsException;
+import com.alten.booking.business.service.BookingMetrics;
+import com.alten.booking.business.service.RateLimitDecision;
 import com.alten.booking.business.service.RateLimiter;
-import io.github.bucket4j.ConsumptionProbe;
-import lombok.AllArgsConstructor;
+import com.alten.booking.infrastructure.messaging.streams.RoomOccupancyStore;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -15,30 +18,63 @@ import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 @Configuration
-@AllArgsConstructor
 @ActiveProfiles("prd")
 public class RateLimitingFilter implements WebFilter, Ordered {
 
+    private static final Pattern OCCUPANCY_PATH = Pattern.compile("/booking/room/[^/]+/occupancy");
+
     private RateLimiter rateLimiter;
+    private BookingMetrics metrics;
+    private String occupancyQueryToken;
+
+    public RateLimitingFilter(RateLimiter rateLimiter,
+                              BookingMetrics metrics,
+                              @Value("${booking.streams.query-token:}") String occupancyQueryToken) {
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        this.occupancyQueryToken = occupancyQueryToken;
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
         ServerHttpResponse response = exchange.getResponse();
+        if (isOccupancyQuery(request)) {
+            return chain.filter(exchange);
+        }
         String username = request.getHeaders().getFirst("username");
-        ConsumptionProbe consumptionProbe =
-                rateLimiter.resolveBucket(Objects.nonNull(username) ? username : "GUEST")
-                        .tryConsumeAndReturnRemaining(1);
-        Long remainingLimit = consumptionProbe.getRemainingTokens();
-        if (!consumptionProbe.isConsumed()) {
-            response.getHeaders().set("X-Rate-Limit-Retry-After-Seconds",
-                    String.valueOf(consumptionProbe.getNanosToWaitForRefill() / 1_000_000_000));
-            return Mono.error(new TooManyRequestsException("TOO MANY REQUEST"));
+        return metrics.timed(BookingMetrics.RATE_LIMIT,
+                        rateLimiter.tryConsume(Objects.nonNull(username) ? username : "GUEST"),
+                        RateLimitingFilter::outcomeOf)
+                .flatMap(decision -> {
+                    if (!decision.isConsumed()) {
+                        response.getHeaders().set("X-Rate-Limit-Retry-After-Seconds",
+                                String.valueOf(decision.getNanosToWaitForRefill() / 1_000_000_000));
+                        return Mono.error(new TooManyRequestsException("TOO MANY REQUEST"));
+                    }
+                    if (decision.getRemainingTokens() >= 0) {
+                        response.getHeaders().set("X-Rate-Limit-Remaining",
+                                String.valueOf(decision.getRemainingTokens()));
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+
+    //The availability queries routed between the instances of the streams mode, authenticated by the shared token.
+    private boolean isOccupancyQuery(ServerHttpRequest request) {
+        return StringUtils.isNotBlank(occupancyQueryToken)
+                && OCCUPANCY_PATH.matcher(request.getPath().pathWithinApplication().value()).matches()
+                && occupancyQueryToken.equals(request.getHeaders().getFirst(RoomOccupancyStore.QUERY_TOKEN_HEADER));
+    }
+
+    private static String outcomeOf(RateLimitDecision decision) {
+        if (!decision.isConsumed()) {
+            return "rejected";
         }
-        response.getHeaders().set("X-Rate-Limit-Remaining", String.valueOf(remainingLimit));
-        return chain.filter(exchange);
+        return decision.getRemainingTokens() >= 0 ? "consumed" : "unknown";
     }
 
     @Override
@@ -4,6 +4,7 @@ import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 import org.redisson.jcache.configuration.RedissonConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
 
 import javax.cache.Cache;
 import javax.cache.CacheManager;
@@ -12,6 +13,7 @@ import javax.cache.configuration.Configuration;
 import javax.cache.configuration.MutableConfiguration;
 
 @org.springframework.context.annotation.Configuration
+@Profile("!local")
 public class RedisConfig  {
 
     @Bean
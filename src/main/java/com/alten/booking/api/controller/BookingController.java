@@ -1,28 +1,42 @@
 package com.alten.booking.api.controller;
 
+import com.alten.booking.api.dto.BookingGroupRequestDTO;
+import com.alten.booking.api.dto.BookingGroupResponseDTO;
+import com.alten.booking.api.dto.BookingPageDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.api.dto.RoomAvailabilityDTO;
+import com.alten.booking.api.dto.RoomCalendarDTO;
 import com.alten.booking.business.service.BookingService;
 import com.alten.booking.business.service.BookingServiceValidator;
+import com.alten.booking.business.service.IdempotencyService;
 import com.alten.booking.infrastructure.repository.entity.BookingStatus;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.AllArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/booking")
 @AllArgsConstructor
 public class BookingController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final BookingService service;
     private final BookingServiceValidator validator;
+    private final IdempotencyService idempotency;
 
     @Operation(summary = "Find booking by id")
     @GetMapping("/{id}")
@@ -31,45 +45,98 @@ public class BookingController {
         return service.findById(id);
     }
 
-    @Operation(summary = "Find all bookings for logged user")
+    @Operation(summary = "Wait at most timeout seconds for the final status of a booking, BOOKED or OVERBOOKED")
+    @GetMapping("/{id}/await")
+    public Mono<BookingResponseDTO> awaitById(@RequestHeader(required = false) String username,
+                                              @PathVariable String id,
+                                              @RequestParam(required = false) Long timeout) {
+        return service.awaitById(id, timeout);
+    }
+
+    @Operation(summary = "Find the active bookings of logged user, the ones BOOKED that did not end yet")
     @GetMapping
-    public Flux<BookingResponseDTO> findAllByUsername(@RequestHeader String username) {
+    public Mono<List<BookingResponseDTO>> findAllByUsername(@RequestHeader String username) {
+        return service.findActiveByUsername(username);
+    }
+
+    @Operation(summary = "Find a page of all bookings for logged user, the next one is read with X-Next-Cursor")
+    @GetMapping("/history")
+    public Mono<ResponseEntity<List<BookingResponseDTO>>> findHistoryByUsername(
+            @RequestHeader String username,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return service.findPageByUsername(username, cursor, limit)
+                .map(BookingController::toResponse);
+    }
+
+    @Operation(summary = "Stream all bookings for logged user")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookingResponseDTO> streamAllByUsername(@RequestHeader String username) {
         return service.findAllByUsername(username);
     }
 
-    @Operation(summary = "Create booking")
+    @Operation(summary = "Create booking, once per Idempotency-Key")
     @ResponseStatus(HttpStatus.ACCEPTED)
     @PostMapping
     public Mono<BookingResponseDTO> createBooking(@RequestHeader String username,
+                                                  @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                  String idempotencyKey,
                                                   @Valid @RequestBody Mono<BookingRequestDTO> dto) {
+        return dto.flatMap(body -> idempotency.execute(username, idempotencyKey, "create", body,
+                () -> validator.validateHeaders(username, body)
+                        .flatMap(service::createBooking)));
+    }
+
+    @Operation(summary = "Create the bookings of a group, confirmed all together or none of them")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PostMapping("/group")
+    public Mono<BookingGroupResponseDTO> createGroup(@RequestHeader String username,
+                                                     @Valid @RequestBody Mono<BookingGroupRequestDTO> dto) {
         return dto
-                .flatMap(it -> validator.validateHeaders(username, it))
-                .flatMap(service::createBooking);
+                .flatMap(it -> validator.validateGroupHeaders(username, it))
+                .flatMap(service::createGroup);
     }
 
-    @Operation(summary = "Update booking by id")
+    @Operation(summary = "Update booking by id, once per Idempotency-Key")
     @ResponseStatus(HttpStatus.ACCEPTED)
     @PutMapping("/{id}")
     public Mono<BookingResponseDTO> updateBookingById(@RequestHeader String username,
+                                                      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                      String idempotencyKey,
                                                       @PathVariable String id,
                                                       @Valid @RequestBody Mono<BookingRequestDTO> dto) {
-        return dto
-                .flatMap(it -> validator.validateHeaders(username, it))
-                .flatMap(it -> service.updateBookingById(id, it));
+        return dto.flatMap(body -> idempotency.execute(username, idempotencyKey, "update:" + id, body,
+                () -> validator.validateHeaders(username, body)
+                        .flatMap(it -> service.updateBookingById(id, it))));
     }
 
-    @Operation(summary = "Cancel booking by id")
+    @Operation(summary = "Cancel booking by id, once per Idempotency-Key")
     @ResponseStatus(HttpStatus.ACCEPTED)
     @DeleteMapping("/{id}")
-    public Mono<BookingResponseDTO> cancelBookingById(@RequestHeader String username, @PathVariable String id) {
-        return service.cancelById(id);
+    public Mono<BookingResponseDTO> cancelBookingById(@RequestHeader String username,
+                                                      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                      String idempotencyKey,
+                                                      @PathVariable String id) {
+        return idempotency.execute(username, idempotencyKey, "cancel:" + id, null, () -> service.cancelById(id));
     }
 
-    @Operation(summary = "Find all bookings by room number")
+    @Operation(summary = "Find a page of bookings by room number, the next one is read with X-Next-Cursor")
     @GetMapping("/room/{roomNumber}")
-    public Flux<BookingResponseDTO> findBookingsByRoomNumber(@RequestHeader(required = false) String username,
-                                                             @PathVariable Long roomNumber,
-                                                             @RequestParam BookingStatus status) {
+    public Mono<ResponseEntity<List<BookingResponseDTO>>> findBookingsByRoomNumber(
+            @RequestHeader(required = false) String username,
+            @PathVariable Long roomNumber,
+            @RequestParam BookingStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return service.findPageByRoomNumberAndStatus(roomNumber, status, cursor, limit)
+                .map(BookingController::toResponse);
+    }
+
+    @Operation(summary = "Stream all bookings by room number")
+    @GetMapping(value = "/room/{roomNumber}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookingResponseDTO> streamBookingsByRoomNumber(@RequestHeader(required = false) String username,
+                                                               @PathVariable Long roomNumber,
+                                                               @RequestParam BookingStatus status) {
         return service.findAllByRoomNumberAndStatus(roomNumber, status);
     }
 
@@ -84,4 +151,40 @@ public class BookingController {
         return service.isValidRequestAndRoomAvailable(roomNumber, startDate, endDate);
     }
 
-}
\ No newline at end of file
+    @Operation(summary = "Availability of a room in the occupancy store of this instance, queried by the other instances")
+    @GetMapping("/room/{roomNumber}/occupancy")
+    public Mono<Boolean> findLocalOccupancy(@PathVariable Long roomNumber,
+                                            @RequestParam("startDate")
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                            @RequestParam("endDate")
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                            @RequestParam(required = false) String excludedId) {
+        return service.isAvailableInLocalStore(roomNumber, startDate, endDate, excludedId);
+    }
+
+    @Operation(summary = "Stream the availability changes of a room as server sent events")
+    @GetMapping(value = "/room/{roomNumber}/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<RoomAvailabilityDTO> streamRoomAvailability(@RequestHeader(required = false) String username,
+                                                            @PathVariable Long roomNumber) {
+        return service.streamRoomAvailability(roomNumber);
+    }
+
+    @Operation(summary = "Find the night by night availability of a room between two dates")
+    @GetMapping("/room/{roomNumber}/calendar")
+    public Mono<RoomCalendarDTO> findRoomCalendar(@RequestHeader(required = false) String username,
+                                                  @PathVariable Long roomNumber,
+                                                  @RequestParam("from")
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam("to")
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return service.findRoomCalendar(roomNumber, from, to);
+    }
+
+    private static ResponseEntity<List<BookingResponseDTO>> toResponse(BookingPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (Objects.nonNull(page.getNextCursor())) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getBookings());
+    }
+}
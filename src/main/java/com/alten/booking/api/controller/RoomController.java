@@ -1,19 +1,26 @@
 package com.alten.booking.api.controller;
 
 import com.alten.booking.api.dto.RoomDTO;
+import com.alten.booking.api.dto.RoomImportResultDTO;
+import com.alten.booking.business.service.RoomImportService;
 import com.alten.booking.business.service.RoomService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+
 @RestController
 @RequestMapping("/room")
 @AllArgsConstructor
 public class RoomController {
 
     private final RoomService service;
+    private final RoomImportService importService;
 
     @Operation(summary = "List all rooms")
     @GetMapping
@@ -27,6 +34,17 @@ public class RoomController {
         return service.findByRoomNumber(roomNumber);
     }
 
+    @Operation(summary = "Find all rooms available for the given dates")
+    @GetMapping("/availability")
+    public Flux<RoomDTO> findAllAvailable(@RequestParam("startDate")
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                          @RequestParam("endDate")
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                          @RequestParam(required = false) Long guests,
+                                          @RequestParam(required = false) Long beds) {
+        return service.findAllAvailable(startDate, endDate, guests, beds);
+    }
+
     @Operation(summary = "Create room")
     @PostMapping
     public Mono<RoomDTO> createRoom(@RequestBody RoomDTO dto) {
@@ -38,4 +56,11 @@ public class RoomController {
     public Mono<RoomDTO> updateRoom(@PathVariable String id, @RequestBody RoomDTO dto) {
         return service.updateRoom(id, dto);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Create or update rooms by room number, one json room per line, with the result of each line")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<RoomImportResultDTO> importRooms(@RequestBody Flux<String> lines) {
+        return importService.importRooms(lines);
+    }
+}
@@ -0,0 +1,50 @@
+package com.alten.booking.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingGroupRequestDTO {
+
+    public static final int MAX_ITEMS = 50;
+
+    @NotBlank(message = "Username must not be empty")
+    private String username;
+    @NotEmpty(message = "At least one booking is required")
+    @Size(max = MAX_ITEMS, message = "At most " + MAX_ITEMS + " bookings per group")
+    private List<@Valid @NotNull(message = "Booking is required") Item> bookings;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+
+        @NotNull(message = "Room number is required")
+        private Long roomNumber;
+        @NotNull(message = "Start date is required")
+        private LocalDate startDate;
+        @NotNull(message = "End date is required")
+        private LocalDate endDate;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+    }
+}
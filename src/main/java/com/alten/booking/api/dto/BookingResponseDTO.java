@@ -20,6 +20,7 @@ public class BookingResponseDTO {
     private String id;
     private Long roomNumber;
     private String username;
+    private String groupId;
     private BookingStatus status;
     private LocalDate startDate;
     private LocalDate endDate;
@@ -0,0 +1,30 @@
+package com.alten.booking.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.time.LocalDate;
+
+/**
+ * Change of the availability of a room: the nights from startDate to endDate, both included, became available or not.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoomAvailabilityDTO {
+
+    private Long roomNumber;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Boolean available;
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+    }
+}
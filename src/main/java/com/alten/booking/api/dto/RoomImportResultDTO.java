@@ -0,0 +1,34 @@
+package com.alten.booking.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Result of one line of a bulk room import: the room was created, updated, or failed with the error of the line.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RoomImportResultDTO {
+
+    public enum Status {
+        CREATED, UPDATED, FAILED
+    }
+
+    private Long line;
+    private Long roomNumber;
+    private Status status;
+    private String error;
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+    }
+}
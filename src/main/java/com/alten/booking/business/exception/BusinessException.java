@@ -10,4 +10,13 @@ public class BusinessException extends RuntimeException {
         super(message);
     }
 
+    //Without stack trace nor suppressed exceptions, for the rejections raised often enough to be allocated once.
+    protected BusinessException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    public static BusinessException preallocated(String message) {
+        return new BusinessException(message, false);
+    }
+
 }
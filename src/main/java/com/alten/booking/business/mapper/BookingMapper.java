@@ -1,9 +1,12 @@
 package com.alten.booking.business.mapper;
 
+import com.alten.booking.api.dto.BookingGroupRequestDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
 import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.mapstruct.ReportingPolicy;
@@ -14,7 +17,10 @@ import org.mapstruct.ReportingPolicy;
 public interface BookingMapper {
 
     Booking toEntity(BookingRequestDTO dto);
+    Booking toEntity(BookingGroupRequestDTO.Item item);
     BookingResponseDTO toDto(Booking entity);
+    @Mapping(target = "id", source = "bookingId")
+    BookingResponseDTO toDto(UserBookings.Item item);
     Booking copyFromDTO(BookingRequestDTO bookingRequestDTO, @MappingTarget Booking entity);
 
 }
\ No newline at end of file
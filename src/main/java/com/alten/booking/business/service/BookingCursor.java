@@ -0,0 +1,46 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.business.exception.BadRequestException;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Keyset position in a list of bookings sorted by (startDate, id). It is handed to the clients encoded, so they can not
+ * rely on its content.
+ */
+@Getter
+@AllArgsConstructor
+public class BookingCursor {
+
+    public static final BookingCursor FIRST = new BookingCursor(null, null);
+
+    private final LocalDate startDate;
+    private final String id;
+
+    public boolean isFirst() {
+        return Objects.isNull(startDate);
+    }
+
+    public static String encode(Booking booking) {
+        String position = booking.getStartDate() + "|" + booking.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookingCursor decode(String cursor) {
+        if (Objects.isNull(cursor) || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            return new BookingCursor(LocalDate.parse(position[0]), position[1]);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor!");
+        }
+    }
+}
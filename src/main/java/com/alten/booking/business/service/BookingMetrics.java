@@ -0,0 +1,102 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.business.exception.NotFoundException;
+import com.alten.booking.business.exception.TooManyRequestsException;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Timers of the stages of the booking pipeline, tagged by stage and outcome, so the latency of a request can be split
+ * between validation, mongo, kafka and redis. Exposed on /actuator/prometheus. They are not tagged by room, as every
+ * room would add a series per stage and outcome.
+ */
+@Component
+public class BookingMetrics {
+
+    public static final String VALIDATION = "validation";
+    public static final String ROOM_LOOKUP = "room_lookup";
+    public static final String CONFLICT_QUERY = "conflict_query";
+    public static final String PRODUCER_SEND = "producer_send";
+    public static final String CONSUMER_PROCESSING = "consumer_processing";
+    public static final String SAVE = "save";
+    public static final String RATE_LIMIT = "rate_limit";
+    //Outcome empty when the occupancy store could not answer and the availability fell back to the other sources.
+    public static final String OCCUPANCY_QUERY = "occupancy_query";
+
+    private static final String SUCCESS = "success";
+    private static final String EMPTY = "empty";
+    private static final String REJECTED = "rejected";
+    private static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final Timer confirmationLatency;
+
+    public BookingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.confirmationLatency = Timer.builder("booking.confirmation.latency")
+                .description("Time from the creation of a booking to its confirmation by the consumer")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+    }
+
+    public <T> Mono<T> timed(String stage, Mono<T> source) {
+        return timed(stage, source, value -> SUCCESS);
+    }
+
+    /**
+     * Times the source from its subscription to its first signal, the outcome tag comes from its value, or from the
+     * type of its error.
+     */
+    public <T> Mono<T> timed(String stage, Mono<T> source, Function<T, String> outcome) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return source
+                    .doOnSuccess(value -> stop(sample, stage, Objects.isNull(value) ? EMPTY : outcome.apply(value)))
+                    .doOnError(error -> stop(sample, stage, outcomeOf(error)));
+        });
+    }
+
+    //Events consumed by outcome: the status of the booking, rejected or error.
+    public void countEvent(String outcome) {
+        registry.counter("booking.events", "outcome", outcome).increment();
+    }
+
+    //Only meaningful for new bookings, created PENDING with their createdDate by the api.
+    public void recordConfirmation(Booking booking) {
+        if (Objects.isNull(booking.getCreatedDate())) {
+            return;
+        }
+        Duration latency = Duration.between(booking.getCreatedDate(), LocalDateTime.now());
+        if (!latency.isNegative()) {
+            confirmationLatency.record(latency);
+        }
+    }
+
+    public static String outcomeOf(Throwable error) {
+        return error instanceof BusinessException
+                || error instanceof NotFoundException
+                || error instanceof TooManyRequestsException ? REJECTED : ERROR;
+    }
+
+    private void stop(Timer.Sample sample, String stage, String outcome) {
+        sample.stop(timer(stage, outcome));
+    }
+
+    private Timer timer(String stage, String outcome) {
+        return Timer.builder("booking.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
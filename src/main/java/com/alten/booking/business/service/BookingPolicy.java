@@ -0,0 +1,137 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.business.exception.BusinessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates the booking rules on epoch days. The rules and their rejections are built once from the configuration, so
+ * an accepted booking allocates nothing and a rejected one only gets a preallocated exception without stack trace.
+ */
+@Component
+public class BookingPolicy {
+
+    private final Clock clock;
+    private final Rules defaults;
+    private final Map<Long, Rules> rooms;
+    //Start and end millis of the current day and its epoch day, recomputed when the clock goes past the end.
+    private volatile long[] currentDay = {0, 0, 0};
+
+    public BookingPolicy(BookingPolicyProperties properties, Clock clock) {
+        this.clock = clock;
+        this.defaults = new Rules(properties.getMaxStayDays(), properties.getMaxDaysInAdvance(),
+                properties.getMinLeadDays());
+        this.rooms = properties.getRooms().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, room -> new Rules(
+                        valueOrDefault(room.getValue().getMaxStayDays(), properties.getMaxStayDays()),
+                        valueOrDefault(room.getValue().getMaxDaysInAdvance(), properties.getMaxDaysInAdvance()),
+                        valueOrDefault(room.getValue().getMinLeadDays(), properties.getMinLeadDays()))));
+    }
+
+    /**
+     * @return the rejection of the stay, null when it respects the rules of the room.
+     */
+    public BusinessException checkStay(Long roomNumber, LocalDate startDate, LocalDate endDate) {
+        Rules rules = rulesOf(roomNumber);
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        long today = today();
+        if (end < start) {
+            return rules.endBeforeStart;
+        }
+        if (start - today < rules.minLeadDays) {
+            return rules.tooSoon;
+        }
+        if (end - start >= rules.maxStayDays) {
+            return rules.tooLong;
+        }
+        if (start - today > rules.maxDaysInAdvance) {
+            return rules.tooFarInAdvance;
+        }
+        return null;
+    }
+
+    /**
+     * @return the rejection of the calendar, null when all its nights could be reserved.
+     */
+    public BusinessException checkCalendar(Long roomNumber, LocalDate from, LocalDate to) {
+        Rules rules = rulesOf(roomNumber);
+        long start = from.toEpochDay();
+        long end = to.toEpochDay();
+        long today = today();
+        if (end < start) {
+            return rules.endBeforeStart;
+        }
+        if (start - today < rules.minLeadDays) {
+            return rules.tooSoon;
+        }
+        if (end - today > rules.lastNight) {
+            return rules.calendarTooFar;
+        }
+        return null;
+    }
+
+    private Rules rulesOf(Long roomNumber) {
+        return rooms.getOrDefault(roomNumber, defaults);
+    }
+
+    private long today() {
+        long now = clock.millis();
+        long[] day = currentDay;
+        if (now < day[0] || now >= day[1]) {
+            day = dayOf(now, clock.getZone());
+            currentDay = day;
+        }
+        return day[2];
+    }
+
+    private static long[] dayOf(long millis, ZoneId zone) {
+        ZonedDateTime start = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().atStartOfDay(zone);
+        long startMillis = start.toInstant().toEpochMilli();
+        long endMillis = start.plusDays(1).toInstant().toEpochMilli();
+        return new long[]{startMillis, endMillis, start.toLocalDate().toEpochDay()};
+    }
+
+    private static int valueOrDefault(Integer value, int defaultValue) {
+        return Objects.isNull(value) ? defaultValue : value;
+    }
+
+    private static final class Rules {
+
+        private final int maxStayDays;
+        private final int maxDaysInAdvance;
+        private final int minLeadDays;
+        //The last night that can be reserved is the last night of the longest stay starting as late as possible.
+        private final int lastNight;
+        private final BusinessException endBeforeStart;
+        private final BusinessException tooSoon;
+        private final BusinessException tooLong;
+        private final BusinessException tooFarInAdvance;
+        private final BusinessException calendarTooFar;
+
+        private Rules(int maxStayDays, int maxDaysInAdvance, int minLeadDays) {
+            this.maxStayDays = maxStayDays;
+            this.maxDaysInAdvance = maxDaysInAdvance;
+            this.minLeadDays = minLeadDays;
+            this.lastNight = maxDaysInAdvance + maxStayDays - 1;
+            this.endBeforeStart = BusinessException.preallocated("End date should be after start date");
+            this.tooSoon = BusinessException.preallocated(minLeadDays == 1
+                    ? "Reservations start at least the next day of booking!"
+                    : "Reservations start at least " + minLeadDays + " days after booking!");
+            this.tooLong = BusinessException.preallocated(
+                    "The stay can’t be longer than " + maxStayDays + " days!");
+            this.tooFarInAdvance = BusinessException.preallocated(
+                    "The stay can’t be reserved more than " + maxDaysInAdvance + " days in advance!");
+            this.calendarTooFar = BusinessException.preallocated(
+                    "The calendar can’t go beyond the last night that can be reserved!");
+        }
+    }
+}
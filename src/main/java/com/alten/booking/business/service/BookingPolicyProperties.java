@@ -0,0 +1,31 @@
+package com.alten.booking.business.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Booking rules of the hotel, each of them can be overridden for a room under booking.policy.rooms.{roomNumber}.
+ */
+@Data
+@ConfigurationProperties(prefix = "booking.policy")
+public class BookingPolicyProperties {
+
+    //Nights of the longest stay, first and last night included.
+    private int maxStayDays = 3;
+    //How far in advance the first night can be reserved.
+    private int maxDaysInAdvance = 30;
+    //Days between the booking and its first night, 1 means tomorrow at the earliest.
+    private int minLeadDays = 1;
+    private Map<Long, Room> rooms = new HashMap<>();
+
+    @Data
+    public static class Room {
+
+        private Integer maxStayDays;
+        private Integer maxDaysInAdvance;
+        private Integer minLeadDays;
+    }
+}
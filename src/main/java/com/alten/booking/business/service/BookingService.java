@@ -1,32 +1,65 @@
 package com.alten.booking.business.service;
 
+import com.alten.booking.api.dto.BookingGroupRequestDTO;
+import com.alten.booking.api.dto.BookingGroupResponseDTO;
+import com.alten.booking.api.dto.BookingPageDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.api.dto.RoomAvailabilityDTO;
+import com.alten.booking.api.dto.RoomCalendarDTO;
 import com.alten.booking.business.exception.BusinessException;
 import com.alten.booking.business.exception.NotFoundException;
 import com.alten.booking.business.mapper.BookingMapper;
-import com.alten.booking.infrastructure.messaging.producer.BookingEventProducer;
+import com.alten.booking.infrastructure.messaging.producer.BookingEventPublisher;
+import com.alten.booking.infrastructure.messaging.streams.RoomOccupancyStore;
 import com.alten.booking.infrastructure.repository.BookingRepository;
 import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
 import com.alten.booking.infrastructure.repository.entity.BookingStatus;
 import lombok.AllArgsConstructor;
 import org.apache.commons.lang3.BooleanUtils;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.CANCELLED;
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.PENDING;
 
 @Service
 @AllArgsConstructor
 public class BookingService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingService.class);
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final BookingRepository repository;
     private final BookingMapper mapper;
-    private final BookingEventProducer producer;
+    private final BookingEventPublisher producer;
     private final BookingServiceValidator validator;
+    private final RoomOccupancyIndex occupancyIndex;
+    private final RoomNightService roomNightService;
+    private final RoomAvailabilityNotifier availabilityNotifier;
+    private final BookingMetrics metrics;
+    private final BookingStatusNotifier statusNotifier;
+    private final RoomOccupancyStore occupancyStore;
+    private final UserBookingsService userBookings;
 
     public Mono<BookingResponseDTO> findById(String id) {
         return repository.findById(id)
@@ -40,25 +73,137 @@ public class BookingService {
                 .switchIfEmpty(Mono.error(new NotFoundException("User " + username + " has no bookings!")));
     }
 
+    //Served by the read model of the user, the whole history is paginated by findPageByUsername.
+    public Mono<List<BookingResponseDTO>> findActiveByUsername(String username) {
+        return userBookings.findActiveByUsername(username)
+                .filter(items -> !items.isEmpty())
+                .switchIfEmpty(Mono.error(new NotFoundException("User " + username + " has no active bookings!")))
+                .map(items -> items.stream()
+                        .map(item -> {
+                            BookingResponseDTO dto = mapper.toDto(item);
+                            dto.setUsername(username);
+                            return dto;
+                        })
+                        .collect(Collectors.toList()));
+    }
+
     public Flux<BookingResponseDTO> findAllByRoomNumberAndStatus(Long roomNumber, BookingStatus status) {
         return repository.findAllByRoomNumberAndStatus(roomNumber, status)
                 .map(mapper::toDto)
                 .switchIfEmpty(Mono.error(new NotFoundException("Room " + roomNumber + " has no bookings!")));
     }
 
+    public Mono<BookingPageDTO> findPageByUsername(String username, String cursor, Integer limit) {
+        return findPage(cursor, limit, "User " + username + " has no bookings!",
+                (after, size) -> repository.findPageByUsername(username, after.getStartDate(), after.getId(), size));
+    }
+
+    public Mono<BookingPageDTO> findPageByRoomNumberAndStatus(Long roomNumber, BookingStatus status, String cursor,
+                                                              Integer limit) {
+        return findPage(cursor, limit, "Room " + roomNumber + " has no bookings!",
+                (after, size) -> repository.findPageByRoomNumberAndStatus(roomNumber, status, after.getStartDate(),
+                        after.getId(), size));
+    }
+
+    //One extra booking is read to know if there is a next page.
+    private Mono<BookingPageDTO> findPage(String cursor, Integer limit, String notFoundMessage,
+                                          BiFunction<BookingCursor, Integer, Flux<Booking>> query) {
+        int size = Objects.isNull(limit) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return Mono.fromCallable(() -> BookingCursor.decode(cursor))
+                .flatMap(after -> query.apply(after, size + 1)
+                        .collectList()
+                        .filter(bookings -> !bookings.isEmpty() || !after.isFirst())
+                        .switchIfEmpty(Mono.error(new NotFoundException(notFoundMessage))))
+                .map(bookings -> {
+                    List<Booking> page = bookings.subList(0, Math.min(size, bookings.size()));
+                    return BookingPageDTO.builder()
+                            .bookings(page.stream().map(mapper::toDto).collect(Collectors.toList()))
+                            .nextCursor(bookings.size() > size ? BookingCursor.encode(page.get(size - 1)) : null)
+                            .build();
+                });
+    }
+
     public Mono<BookingResponseDTO> createBooking(BookingRequestDTO dto) {
         return Mono.just(dto)
                 .map(mapper::toEntity)
                 .flatMap(this::validateBooking)
-                .map(Booking::pending)
+                //The id is assigned up front so the client can await the booking, and the confirmation latency is
+                //measured by the consumer from the createdDate.
+                .map(booking -> booking.pending()
+                        .setId(new ObjectId().toHexString())
+                        .setCreatedDate(LocalDateTime.now()))
                 .flatMap(producer::bookingEventOutput)
                 .map(mapper::toDto);
     }
 
+    /**
+     * Books several stays at once with a single group event: the stays are validated together, with one lookup of the
+     * rooms and one conflict query, and the consumer confirms all of them or none.
+     */
+    public Mono<BookingGroupResponseDTO> createGroup(BookingGroupRequestDTO dto) {
+        //The stays of a group span rooms decided by different tasks of the streams, which can't book them all at once.
+        if (occupancyStore.isEnabled()) {
+            return Mono.error(new BusinessException("Group bookings are not available when the bookings are decided in"
+                    + " kafka streams!"));
+        }
+        String groupId = new ObjectId().toHexString();
+        return Mono.fromSupplier(() -> dto.getBookings().stream()
+                        .map(item -> mapper.toEntity(item)
+                                .setUsername(dto.getUsername())
+                                .setGroupId(groupId))
+                        .collect(Collectors.toList()))
+                .flatMap(validator::validateGroup)
+                .flatMap(this::validateGroupAvailability)
+                .map(bookings -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    bookings.forEach(booking -> booking.pending()
+                            .setId(new ObjectId().toHexString())
+                            .setCreatedDate(now));
+                    return BookingGroup.builder()
+                            .id(groupId)
+                            .username(dto.getUsername())
+                            .bookings(bookings)
+                            .build();
+                })
+                .flatMap(producer::bookingGroupEventOutput)
+                .map(group -> BookingGroupResponseDTO.builder()
+                        .id(group.getId())
+                        .username(group.getUsername())
+                        .bookings(group.getBookings().stream().map(mapper::toDto).collect(Collectors.toList()))
+                        .build());
+    }
+
+    //Only a pre-check like for a single booking, the consumer decides when it reserves the room nights.
+    private Mono<List<Booking>> validateGroupAvailability(List<Booking> bookings) {
+        return metrics.timed(BookingMetrics.CONFLICT_QUERY, repository.findFirstConflicting(bookings))
+                .flatMap(conflict -> Mono.<List<Booking>>error(new BusinessException("Room "
+                        + conflict.getRoomNumber() + " not available for given dates!")))
+                .switchIfEmpty(Mono.just(bookings));
+    }
+
+    /**
+     * Waits for the consumer to persist the final status of the booking, without holding a thread. A booking already
+     * persisted is returned at once, and after the timeout the booking is returned as it is, if it is persisted.
+     */
+    public Mono<BookingResponseDTO> awaitById(String id, Long timeout) {
+        //The signal is subscribed to before the booking is read, so a signal in between is not missed.
+        return Flux.merge(statusNotifier.next(id).flatMap(repository::findById),
+                        repository.findById(id).filter(booking -> PENDING != booking.getStatus()))
+                .next()
+                .timeout(statusNotifier.timeoutOf(timeout), Mono.defer(() -> repository.findById(id)))
+                .switchIfEmpty(Mono.error(new NotFoundException("Booking not found or not confirmed yet!")))
+                .map(mapper::toDto);
+    }
+
     public Mono<BookingResponseDTO> updateBookingById(String id, BookingRequestDTO dto) {
         return repository.findById(id)
                 .switchIfEmpty(Mono.error(new NotFoundException("Booking not found for update!")))
-                .map(entity -> mapper.copyFromDTO(dto, entity))
+                .map(entity -> mapper.copyFromDTO(dto, entity.keepPreviousStay()))
+                //The stays of a room are kept by the task of its partition, which can't release those of another room.
+                .flatMap(booking -> occupancyStore.isEnabled() && booking.movesRoom()
+                        ? Mono.error(new BusinessException("A booking can't change rooms when the bookings are decided"
+                        + " in kafka streams!"))
+                        : Mono.just(booking))
                 .flatMap(this::validateBooking)
                 .flatMap(producer::bookingEventOutput)
                 .map(mapper::toDto);
@@ -72,21 +217,162 @@ public class BookingService {
                 .map(mapper::toDto);
     }
 
+    /**
+     * A save that fails leaves the event as it was received: a new booking gives back the nights it reserved and gets
+     * its status back, so the retry or the redelivered event confirms it as new again instead of as an update. An
+     * update keeps the nights of its persisted stay until it is saved.
+     */
     public Mono<Booking> createOrUpdate(Booking booking) {
-        return isRoomAvailable(booking)
-                .filter(BooleanUtils::isTrue)
-                .map(aBoolean -> booking.booked())
-                .flatMap(repository::save)
-                .switchIfEmpty(Mono.defer(() -> {
-                    if (Objects.isNull(booking.getId())) {
-                        return repository.save(booking.overbooked());
+        boolean isNew = isNew(booking);
+        BookingStatus received = booking.getStatus();
+        return confirm(booking)
+                .flatMap(confirmed -> save(confirmed)
+                        .onErrorResume(error -> (isNew ? roomNightService.release(confirmed) : Mono.<Void>empty())
+                                .then(Mono.fromRunnable(() -> confirmed.setStatus(received)))
+                                .then(Mono.error(error)))
+                        .flatMap(saved -> isNew ? Mono.just(saved) : releaseStale(saved)))
+                .switchIfEmpty(Mono.error(new BusinessException("Sending message: Could not update your booking!")));
+    }
+
+    /**
+     * The bookings of the group are all BOOKED when all their nights could be reserved together, all OVERBOOKED
+     * otherwise, and are persisted with a single bulk write.
+     */
+    public Flux<Booking> confirmGroup(BookingGroup group) {
+        List<Booking> bookings = group.getBookings();
+        return roomNightService.reserveAll(bookings)
+                .map(reserved -> bookings.stream()
+                        .map(booking -> BooleanUtils.isTrue(reserved) ? booking.booked() : booking.overbooked())
+                        .collect(Collectors.toList()))
+                .flatMap(decided -> metrics.timed(BookingMetrics.SAVE, repository.bulkSave(decided).collectList()))
+                .flatMapIterable(saved -> saved);
+    }
+
+    /**
+     * Batch version of {@link #createOrUpdate(Booking)} and {@link #cancel(Booking)}: the events are grouped by room,
+     * the bookings conflicting with an earlier event of the batch are resolved in memory without any round trip, the
+     * others reserve their nights, and everything is persisted with a single bulk write.
+     */
+    public Flux<Booking> createOrUpdateAll(List<Booking> bookings) {
+        List<Booking> created = bookings.stream().filter(BookingService::isNew).collect(Collectors.toList());
+        Set<Booking> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        bookings.stream().filter(booking -> !isNew(booking)).forEach(updated::add);
+        return Flux.fromIterable(bookings.stream()
+                        .collect(Collectors.groupingBy(Booking::getRoomNumber, LinkedHashMap::new, Collectors.toList()))
+                        .values())
+                .flatMap(this::resolveRoomBookings)
+                .collectList()
+                .flatMap(resolved -> metrics.timed(BookingMetrics.SAVE, repository.bulkSave(resolved).collectList())
+                        //The poll is consumed again, the new bookings give back the nights they could not persist, then
+                        //the cancellations take theirs back, as mongo still has their stays.
+                        .onErrorResume(error -> Flux.fromIterable(created)
+                                .filter(booking -> Objects.nonNull(booking.getId()))
+                                .concatMap(roomNightService::release)
+                                .thenMany(Flux.fromIterable(resolved))
+                                .filter(booking -> CANCELLED == booking.getStatus())
+                                .concatMap(roomNightService::restore)
+                                .then(Mono.error(error)))
+                        .flatMap(saved -> Flux.fromIterable(resolved)
+                                .filter(booking -> BookingStatus.BOOKED == booking.getStatus()
+                                        && updated.contains(booking))
+                                .concatMap(this::releaseStale)
+                                .then(Mono.just(saved))))
+                .flatMapIterable(saved -> saved);
+    }
+
+    private Flux<Booking> resolveRoomBookings(List<Booking> bookings) {
+        LocalDate from = bookings.stream().map(Booking::getStartDate).min(Comparator.naturalOrder()).orElseThrow();
+        RoomOccupancy batchOccupancy = new RoomOccupancy(from);
+        return Flux.fromIterable(bookings)
+                .concatMap(booking -> {
+                    if (CANCELLED == booking.getStatus()) {
+                        batchOccupancy.release(booking.getId());
+                        return roomNightService.release(booking).thenReturn(booking);
+                    }
+                    boolean isNew = isNew(booking);
+                    if (!batchOccupancy.isFree(booking.getStartDate(), booking.getEndDate(), booking.getId())) {
+                        return rejected(booking, isNew);
                     }
-                    return Mono.error(new BusinessException("Sending message: Could not update your booking!"));
-                }));
+                    return confirm(booking)
+                            .doOnNext(it -> {
+                                if (BookingStatus.BOOKED == it.getStatus()) {
+                                    batchOccupancy.book(it.getId(), it.getStartDate(), it.getEndDate());
+                                }
+                            })
+                            .switchIfEmpty(Mono.defer(() -> rejected(booking, false)));
+                });
+    }
+
+    /**
+     * @return the booking BOOKED when all its nights could be reserved, OVERBOOKED when it is a new booking that could
+     * not, and empty for an update that could not.
+     */
+    private Mono<Booking> confirm(Booking booking) {
+        boolean isNew = isNew(booking);
+        if (isNew) {
+            //The nights are reserved on behalf of the booking, so its id is needed before it is saved.
+            if (Objects.isNull(booking.getId())) {
+                booking.setId(new ObjectId().toHexString());
+            }
+            if (Objects.isNull(booking.getCreatedDate())) {
+                booking.setCreatedDate(LocalDateTime.now());
+            }
+        }
+        return roomNightService.reserve(booking, isNew)
+                .flatMap(reserved -> {
+                    if (BooleanUtils.isTrue(reserved)) {
+                        return Mono.just(booking.booked());
+                    }
+                    return isNew ? Mono.just(booking.overbooked()) : Mono.empty();
+                });
+    }
+
+    //New bookings come PENDING with the id assigned by the api, or without any id from the older producers.
+    private static boolean isNew(Booking booking) {
+        return Objects.isNull(booking.getId()) || PENDING == booking.getStatus();
+    }
+
+    private static Mono<Booking> rejected(Booking booking, boolean isNew) {
+        if (isNew) {
+            return Mono.just(booking.overbooked());
+        }
+        LOGGER.error("Error processing message: Could not update your booking! {}", booking);
+        return Mono.empty();
+    }
+
+    //Once an update is persisted, the nights of its previous stay are no longer needed.
+    private Mono<Booking> releaseStale(Booking booking) {
+        return roomNightService.releaseStale(booking).thenReturn(booking);
+    }
+
+    private Mono<Booking> save(Booking booking) {
+        return metrics.timed(BookingMetrics.SAVE, repository.save(booking));
+    }
+
+    /**
+     * Persists a booking decided by the kafka streams processor. A BOOKED booking still reserves its nights, like
+     * {@link #confirm(Booking)}, so the room nights stay the shared truth of both consumers: when they are taken by
+     * another booking, a booking not persisted yet is saved OVERBOOKED and an update is rejected.
+     */
+    public Mono<Booking> persistDecided(Booking booking) {
+        if (CANCELLED == booking.getStatus()) {
+            return cancel(booking);
+        }
+        if (BookingStatus.BOOKED != booking.getStatus()) {
+            return save(booking);
+        }
+        return roomNightService.reserve(booking, false)
+                .flatMap(reserved -> BooleanUtils.isTrue(reserved)
+                        ? save(booking).flatMap(this::releaseStale)
+                        : repository.existsById(booking.getId())
+                        .flatMap(exists -> exists
+                                ? Mono.error(new BusinessException("Sending message: Could not update your booking!"))
+                                : save(booking.overbooked())));
     }
 
     public Mono<Booking> cancel(Booking booking) {
-        return repository.save(booking);
+        return save(booking)
+                .flatMap(cancelled -> roomNightService.release(cancelled).thenReturn(cancelled));
     }
 
     public Mono<Boolean> isValidRequestAndRoomAvailable(Long roomNumber, LocalDate startDate, LocalDate endDate) {
@@ -100,6 +386,46 @@ public class BookingService {
                 .cast(Boolean.class);
     }
 
+    public Mono<RoomCalendarDTO> findRoomCalendar(Long roomNumber, LocalDate from, LocalDate to) {
+        return validator.validateRoomExistsAndCalendarIsCorrect(roomNumber, from, to)
+                .flatMap(it -> findOccupiedNights(roomNumber, from, to))
+                .map(occupied -> RoomCalendarDTO.builder()
+                        .roomNumber(roomNumber)
+                        .from(from)
+                        .to(to)
+                        .nights(encodeNights(occupied, (int) (to.toEpochDay() - from.toEpochDay()) + 1))
+                        .build());
+    }
+
+    public Mono<Boolean> isAvailableInLocalStore(Long roomNumber, LocalDate startDate, LocalDate endDate,
+                                                 String excludedId) {
+        return occupancyStore.isAvailableLocally(roomNumber, startDate, endDate, excludedId);
+    }
+
+    public Flux<RoomAvailabilityDTO> streamRoomAvailability(Long roomNumber) {
+        return availabilityNotifier.changes(roomNumber);
+    }
+
+    private Mono<BitSet> findOccupiedNights(Long roomNumber, LocalDate from, LocalDate to) {
+        return occupancyIndex.occupied(roomNumber, from, to)
+                .map(Mono::just)
+                .orElseGet(() -> repository.findAllByRoomNumberAndDatesConflict(roomNumber, from, to, null)
+                        .reduce(new BitSet(), (occupied, booking) -> {
+                            long start = Math.max(booking.getStartDate().toEpochDay(), from.toEpochDay());
+                            long end = Math.min(booking.getEndDate().toEpochDay(), to.toEpochDay());
+                            occupied.set((int) (start - from.toEpochDay()), (int) (end - from.toEpochDay()) + 1);
+                            return occupied;
+                        }));
+    }
+
+    private static String encodeNights(BitSet occupied, int nights) {
+        char[] encoded = new char[nights];
+        for (int night = 0; night < nights; night++) {
+            encoded[night] = occupied.get(night) ? '0' : '1';
+        }
+        return new String(encoded);
+    }
+
     private Mono<Booking> validateBooking(Booking booking) {
         return isValidRequestAndRoomAvailable(booking)
                 .filter(BooleanUtils::isFalse)
@@ -113,10 +439,22 @@ public class BookingService {
                 .flatMap(it -> isRoomAvailable(booking));
     }
 
+    //The occupancy store decides the bookings when the streams are enabled, the index and mongo are the fallbacks.
+    //The index may not know yet of a cancellation made on another instance, so it only ever accepts a booking.
     private Mono<Boolean> isRoomAvailable(Booking booking) {
-        return repository.findAllByRoomNumberAndDatesConflict(booking.getRoomNumber(), booking.getStartDate(),
-                        booking.getEndDate(), booking.getId())
-                .collectList()
-                .map(CollectionUtils::isEmpty);
+        return occupancyStore.isAvailable(booking.getRoomNumber(), booking.getStartDate(), booking.getEndDate(),
+                        booking.getId())
+                .switchIfEmpty(Mono.defer(() -> occupancyIndex.isAvailable(booking)
+                        .filter(Boolean::booleanValue)
+                        .map(Mono::just)
+                        .orElseGet(() -> isRoomAvailableInRepository(booking))));
+    }
+
+    //Only a pre-check, the final decision is taken by the consumer when it reserves the room nights.
+    private Mono<Boolean> isRoomAvailableInRepository(Booking booking) {
+        return metrics.timed(BookingMetrics.CONFLICT_QUERY,
+                repository.existsByRoomNumberAndDatesConflict(booking.getRoomNumber(), booking.getStartDate(),
+                        booking.getEndDate(), booking.getId()))
+                .map(BooleanUtils::negate);
     }
 }
\ No newline at end of file
@@ -1,19 +1,33 @@
 package com.alten.booking.business.service;
 
+import com.alten.booking.api.dto.BookingGroupRequestDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
+import com.alten.booking.api.dto.RoomDTO;
 import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.business.exception.NotFoundException;
 import com.alten.booking.infrastructure.repository.entity.Booking;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class BookingServiceValidator {
 
+    private static final Mono<Boolean> VALID = Mono.just(Boolean.TRUE);
+
     private final RoomService roomService;
+    private final BookingPolicy policy;
+    private final BookingMetrics metrics;
 
     public Mono<BookingRequestDTO> validateHeaders(String username, BookingRequestDTO it) {
         return username.equals(it.getUsername())
@@ -21,29 +35,84 @@ public class BookingServiceValidator {
                 : Mono.error(new BusinessException("Different username between header and body!"));
     }
 
-    public Mono<Boolean> validateRoomExistsAndDatesAreCorrect(Booking booking) {
-        return roomService.findByRoomNumber(booking.getRoomNumber())
-                .flatMap(it -> datesValidator(booking.getStartDate(), booking.getEndDate()));
+    public Mono<BookingGroupRequestDTO> validateGroupHeaders(String username, BookingGroupRequestDTO it) {
+        return username.equals(it.getUsername())
+                ? Mono.just(it)
+                : Mono.error(new BusinessException("Different username between header and body!"));
     }
 
-    private Mono<Boolean> datesValidator(LocalDate startDate, LocalDate endDate) {
+    /**
+     * Validates all the bookings of a group in one pass: the dates of each booking, the bookings of a same room must
+     * not overlap each other, and all the rooms must exist, looked up at once.
+     */
+    public Mono<List<Booking>> validateGroup(List<Booking> bookings) {
+        return metrics.timed(BookingMetrics.VALIDATION, Mono.defer(() -> {
+            BusinessException violation = bookings.stream()
+                    .map(booking -> policy.checkStay(booking.getRoomNumber(), booking.getStartDate(),
+                            booking.getEndDate()))
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElseGet(() -> checkNoOverlap(bookings));
+            return Objects.isNull(violation)
+                    ? findRooms(bookings).thenReturn(bookings)
+                    : Mono.error(violation);
+        }));
+    }
 
-        if (!startDate.isEqual(endDate) && startDate.isAfter(endDate)) {
-            return Mono.error(new BusinessException("End date should be after start date"));
+    private static BusinessException checkNoOverlap(List<Booking> bookings) {
+        Map<Long, List<Booking>> byRoom = bookings.stream()
+                .sorted(Comparator.comparing(Booking::getStartDate))
+                .collect(Collectors.groupingBy(Booking::getRoomNumber, LinkedHashMap::new, Collectors.toList()));
+        for (Map.Entry<Long, List<Booking>> room : byRoom.entrySet()) {
+            List<Booking> stays = room.getValue();
+            for (int i = 1; i < stays.size(); i++) {
+                if (!stays.get(i).getStartDate().isAfter(stays.get(i - 1).getEndDate())) {
+                    return new BusinessException("Bookings of room " + room.getKey() + " overlap in the group!");
+                }
+            }
         }
+        return null;
+    }
 
-        if (startDate.isBefore(LocalDate.now()) || startDate.isEqual(LocalDate.now())) {
-            return Mono.error(new BusinessException("Reservations start at least the next day of booking!"));
-        }
+    private Mono<Void> findRooms(List<Booking> bookings) {
+        Set<Long> roomNumbers = bookings.stream().map(Booking::getRoomNumber).collect(Collectors.toSet());
+        return metrics.timed(BookingMetrics.ROOM_LOOKUP, roomService.findAllByRoomNumber(roomNumbers)
+                        .map(RoomDTO::getRoomNumber)
+                        .collect(Collectors.toSet()))
+                .flatMap(found -> roomNumbers.stream()
+                        .filter(roomNumber -> !found.contains(roomNumber))
+                        .sorted()
+                        .findFirst()
+                        .map(roomNumber -> Mono.<Void>error(new NotFoundException("Room " + roomNumber + " not found!")))
+                        .orElseGet(Mono::empty));
+    }
 
-        if (startDate.datesUntil(endDate).count() > 2) {
-            return Mono.error(new BusinessException("The stay can’t be longer than 3 days!"));
-        }
+    //The validation stage includes the room lookup, which is also timed on its own.
+    public Mono<Boolean> validateRoomExistsAndDatesAreCorrect(Booking booking) {
+        return metrics.timed(BookingMetrics.VALIDATION,
+                findRoom(booking.getRoomNumber())
+                        .flatMap(it -> datesValidator(booking.getRoomNumber(), booking.getStartDate(),
+                                booking.getEndDate())));
+    }
 
-        if (LocalDate.now().datesUntil(startDate).count() > 30) {
-            return Mono.error(new BusinessException("The stay can’t be reserved more than 30 days in advance!"));
-        }
+    public Mono<Boolean> validateRoomExistsAndCalendarIsCorrect(Long roomNumber, LocalDate from, LocalDate to) {
+        return findRoom(roomNumber)
+                .flatMap(it -> calendarValidator(roomNumber, from, to));
+    }
+
+    private Mono<RoomDTO> findRoom(Long roomNumber) {
+        return metrics.timed(BookingMetrics.ROOM_LOOKUP, roomService.findByRoomNumber(roomNumber));
+    }
+
+    private Mono<Boolean> calendarValidator(Long roomNumber, LocalDate from, LocalDate to) {
+        return toResult(policy.checkCalendar(roomNumber, from, to));
+    }
+
+    private Mono<Boolean> datesValidator(Long roomNumber, LocalDate startDate, LocalDate endDate) {
+        return toResult(policy.checkStay(roomNumber, startDate, endDate));
+    }
 
-        return Mono.just(Boolean.TRUE);
+    private static Mono<Boolean> toResult(BusinessException violation) {
+        return Objects.isNull(violation) ? VALID : Mono.error(violation);
     }
-}
\ No newline at end of file
+}
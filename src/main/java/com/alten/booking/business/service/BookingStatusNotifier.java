@@ -0,0 +1,143 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.PENDING;
+
+/**
+ * Signals the bookings whose final status is persisted to the requests awaiting them. The consumer signals the requests
+ * of its own instance directly, and those of the other instances through a redis topic. The requests are kept by
+ * booking id, so a signal only reaches the requests awaiting its booking, whatever the number of requests awaiting.
+ */
+@Component
+public class BookingStatusNotifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingStatusNotifier.class);
+    private static final String CHANNEL = "booking-status";
+    private static final String SEPARATOR = "|";
+
+    //Tells the signals of this instance apart, they are already delivered through the sink.
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Broadcaster broadcaster;
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+    private final Map<String, Waiters> waiters = new ConcurrentHashMap<>();
+    private Disposable upstream;
+
+    public BookingStatusNotifier(Broadcaster broadcaster,
+                                 @Value("${booking.await.timeout:PT10S}") Duration defaultTimeout,
+                                 @Value("${booking.await.max-timeout:PT30S}") Duration maxTimeout) {
+        this.broadcaster = broadcaster;
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void listen() {
+        upstream = broadcaster.listen(CHANNEL)
+                .subscribe(this::receive,
+                        error -> LOGGER.error("Error listening to booking status changes: {}", error.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.nonNull(upstream)) {
+            upstream.dispose();
+        }
+        waiters.values().forEach(awaiting -> awaiting.signal.tryEmitEmpty());
+        waiters.clear();
+    }
+
+    /**
+     * The next signal of the booking. It is subscribed to the moment the returned mono is, so it must be subscribed to
+     * before reading the booking, or a signal in between would be missed.
+     */
+    public Mono<String> next(String bookingId) {
+        return Mono.defer(() -> {
+            Waiters awaiting = waiters.compute(bookingId,
+                    (id, current) -> (Objects.isNull(current) ? new Waiters() : current).join());
+            //The last request to give up removes the entry, unless a signal already did.
+            return awaiting.signal.asMono()
+                    .doFinally(signal -> waiters.computeIfPresent(bookingId,
+                            (id, current) -> current == awaiting && current.leave() ? null : current));
+        });
+    }
+
+    int awaitedBookings() {
+        return waiters.size();
+    }
+
+    //A failure to signal never fails the booking, the awaiting requests read it when they time out.
+    public Mono<Void> publish(Booking booking) {
+        if (PENDING == booking.getStatus() || Objects.isNull(booking.getId())) {
+            return Mono.empty();
+        }
+        emit(booking.getId());
+        return broadcaster.publish(CHANNEL, instanceId + SEPARATOR + booking.getId())
+                .onErrorResume(error -> {
+                    LOGGER.error("Error signalling the status of booking {}: {}", booking.getId(), error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    //The timeout asked by the client in seconds, bounded so a request can't be held open indefinitely.
+    public Duration timeoutOf(Long seconds) {
+        if (Objects.isNull(seconds) || seconds <= 0) {
+            return defaultTimeout;
+        }
+        Duration timeout = Duration.ofSeconds(seconds);
+        return timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+    }
+
+    private void receive(String message) {
+        int separator = message.indexOf(SEPARATOR);
+        if (separator < 0) {
+            LOGGER.error("Invalid booking status signal: {}", message);
+            return;
+        }
+        if (!instanceId.equals(message.substring(0, separator))) {
+            emit(message.substring(separator + 1));
+        }
+    }
+
+    //The entry is removed before it is signalled, so only one of the concurrent signals of a booking signals it.
+    private void emit(String bookingId) {
+        Waiters awaiting = waiters.remove(bookingId);
+        if (Objects.nonNull(awaiting)) {
+            awaiting.signal.tryEmitValue(bookingId);
+        }
+    }
+
+    //The requests awaiting the same booking, only changed inside the compute of its entry.
+    private static class Waiters {
+
+        private final Sinks.One<String> signal = Sinks.one();
+        private int count;
+
+        Waiters join() {
+            count++;
+            return this;
+        }
+
+        boolean leave() {
+            return --count == 0;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.business.exception.ConflictException;
+import com.alten.booking.infrastructure.idempotency.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a booking command once per idempotency key: the first response is kept in the store and returned to the
+ * retries, before any mongo or kafka work. Concurrent retries on the same instance share the in-flight command, those
+ * on another instance wait for its response in the store. A failed command is not kept, so it can be retried.
+ * <p>
+ * The response is kept with a fingerprint of the request, a key sent again with another request is rejected instead of
+ * answered with the response of the first one. When the store is unavailable the commands run without deduplication,
+ * the way the rate limit fails open.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String ABSENT = "ABSENT";
+    private static final String SEPARATOR = "|";
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTtl;
+    private final Duration pollInterval;
+    private final Map<String, Mono<BookingResponseDTO>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyStore store,
+                              ObjectMapper objectMapper,
+                              @Value("${booking.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${booking.idempotency.lock-ttl:PT30S}") Duration lockTtl,
+                              @Value("${booking.idempotency.poll-interval:PT0.1S}") Duration pollInterval) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lockTtl = lockTtl;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * @param operation the keys are scoped by user and operation, the same key sent to another operation runs it.
+     * @param request   the body of the command, the same key sent with another body is rejected.
+     */
+    public Mono<BookingResponseDTO> execute(String username, String idempotencyKey, String operation, Object request,
+                                            Supplier<Mono<BookingResponseDTO>> command) {
+        if (Objects.isNull(idempotencyKey) || idempotencyKey.isBlank()) {
+            return command.get();
+        }
+        String key = KEY_PREFIX + username + ":" + operation + ":" + idempotencyKey;
+        return Mono.fromCallable(() -> fingerprint(request))
+                .flatMap(fingerprint -> inFlight.computeIfAbsent(key + SEPARATOR + fingerprint,
+                        it -> run(key, fingerprint, command)
+                                .doFinally(signal -> inFlight.remove(it))
+                                .cache()));
+    }
+
+    //A store that can't be reached lets the command run as if it held the key, its response is stored if it can be.
+    private Mono<BookingResponseDTO> run(String key, String fingerprint, Supplier<Mono<BookingResponseDTO>> command) {
+        return store.tryReserve(key, fingerprint + SEPARATOR + IN_PROGRESS, lockTtl)
+                .onErrorResume(error -> {
+                    LOGGER.warn("Idempotency store unavailable, {} runs without deduplication: {}", key,
+                            error.getMessage());
+                    return Mono.just(Boolean.TRUE);
+                })
+                .flatMap(reserved -> Boolean.TRUE.equals(reserved)
+                        ? executeAndStore(key, fingerprint, command)
+                        : awaitStored(key, fingerprint, command));
+    }
+
+    private Mono<BookingResponseDTO> executeAndStore(String key, String fingerprint,
+                                                     Supplier<Mono<BookingResponseDTO>> command) {
+        return command.get()
+                .flatMap(response -> Mono.fromCallable(() -> objectMapper.writeValueAsString(response))
+                        .flatMap(json -> store.complete(key, fingerprint + SEPARATOR + json, ttl))
+                        .onErrorResume(error -> {
+                            LOGGER.error("Error storing the response of {}: {}", key, error.getMessage());
+                            return Mono.empty();
+                        })
+                        .thenReturn(response))
+                .onErrorResume(error -> store.release(key)
+                        .onErrorResume(releaseError -> Mono.empty())
+                        .then(Mono.error(error)));
+    }
+
+    /**
+     * Polls the store until the command holding the key completes, or runs it if the holder failed and released it. The
+     * lock was taken before the polls started and the polls themselves take time, so they last half the lock ttl more
+     * than the lock can live: a holder that died is always seen released, instead of answered as still in progress.
+     */
+    private Mono<BookingResponseDTO> awaitStored(String key, String fingerprint,
+                                                 Supplier<Mono<BookingResponseDTO>> command) {
+        Duration wait = lockTtl.plus(lockTtl.dividedBy(2));
+        long attempts = Math.max(1, wait.toMillis() / Math.max(1, pollInterval.toMillis()));
+        return Mono.defer(() -> store.get(key))
+                .defaultIfEmpty(ABSENT)
+                .flatMap(value -> {
+                    if (ABSENT.equals(value)) {
+                        return run(key, fingerprint, command);
+                    }
+                    int separator = value.indexOf(SEPARATOR);
+                    if (separator < 0 || !fingerprint.equals(value.substring(0, separator))) {
+                        return Mono.<BookingResponseDTO>error(new ConflictException(
+                                "The Idempotency-Key was already used with another request!"));
+                    }
+                    String stored = value.substring(separator + 1);
+                    return IN_PROGRESS.equals(stored) ? Mono.<BookingResponseDTO>empty() : read(stored);
+                })
+                .repeatWhenEmpty(ticks -> ticks.take(attempts).delayElements(pollInterval))
+                .switchIfEmpty(Mono.error(() -> new ConflictException(
+                        "A request with the same Idempotency-Key is still in progress!")));
+    }
+
+    private Mono<BookingResponseDTO> read(String value) {
+        return Mono.fromCallable(() -> objectMapper.readValue(value, BookingResponseDTO.class));
+    }
+
+    private String fingerprint(Object request) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+}
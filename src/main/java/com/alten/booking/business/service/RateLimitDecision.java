@@ -0,0 +1,26 @@
+package com.alten.booking.business.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RateLimitDecision {
+
+    private final boolean consumed;
+    private final long remainingTokens;
+    private final long nanosToWaitForRefill;
+
+    public static RateLimitDecision consumed(long remainingTokens) {
+        return new RateLimitDecision(true, remainingTokens, 0);
+    }
+
+    //Let through without knowing the remaining tokens, when the bucket store could not answer in time.
+    public static RateLimitDecision unknown() {
+        return new RateLimitDecision(true, -1, 0);
+    }
+
+    public static RateLimitDecision rejected(long nanosToWaitForRefill) {
+        return new RateLimitDecision(false, 0, nanosToWaitForRefill);
+    }
+}
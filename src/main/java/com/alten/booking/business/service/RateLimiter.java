@@ -1,33 +1,130 @@
 package com.alten.booking.business.service;
 
+import com.alten.booking.infrastructure.ratelimit.BucketStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
-import io.github.bucket4j.distributed.proxy.ProxyManager;
-import io.github.bucket4j.grid.jcache.JCacheProxyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import javax.cache.Cache;
 import java.time.Duration;
 import java.util.function.Supplier;
 
 @Service
 public class RateLimiter {
 
-    private final ProxyManager<String> buckets;
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiter.class);
+    private static final String GUEST = "GUEST";
 
-    public RateLimiter(Cache<String, byte[]> cache) {
-        buckets = new JCacheProxyManager<>(cache);
+    private final BucketStore buckets;
+    private final boolean localEnabled;
+    private final long grantSize;
+    private final long guestGrantSize;
+    private final Duration timeout;
+    private final boolean failOpen;
+    private final Cache<String, LocalGrant> grants;
+
+    public RateLimiter(BucketStore buckets,
+                       @Value("${booking.rate-limit.local.enabled:false}") boolean localEnabled,
+                       @Value("${booking.rate-limit.local.grant-size:5}") long grantSize,
+                       @Value("${booking.rate-limit.local.guest-grant-size:50}") long guestGrantSize,
+                       @Value("${booking.rate-limit.local.grant-ttl:PT1S}") Duration grantTtl,
+                       @Value("${booking.rate-limit.timeout:PT0.2S}") Duration timeout,
+                       @Value("${booking.rate-limit.fail-open:true}") boolean failOpen) {
+        this.buckets = buckets;
+        this.localEnabled = localEnabled;
+        this.grantSize = grantSize;
+        this.guestGrantSize = guestGrantSize;
+        this.timeout = timeout;
+        this.failOpen = failOpen;
+        //Unused tokens of a grant are given back to the bucket after the ttl, so an idle instance does not hold the
+        //tokens of a user nor make them lost. The scheduler expires the grants without waiting for another request.
+        this.grants = Caffeine.newBuilder()
+                .expireAfterWrite(grantTtl)
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::giveBack)
+                .build();
     }
 
     public Bucket resolveBucket(String key) {
         Supplier<BucketConfiguration> configSupplier = getConfigSupplierForUser(key);
-        return buckets.builder().build(key, configSupplier);
+        return buckets.resolve(key, configSupplier);
+    }
+
+    /**
+     * Consumes one token of the user. With the local tier enabled the tokens are reserved from the redis bucket a grant
+     * at a time and consumed in memory, so only one request out of grant-size goes to redis. The tokens are still taken
+     * from the shared bucket, an instance just holds back up to grant-size of them for grant-ttl.
+     * <p>
+     * The redis round trips run on the bounded elastic scheduler, never on the event loop. When redis does not answer
+     * within the timeout the request is let through or rejected depending on booking.rate-limit.fail-open.
+     */
+    public Mono<RateLimitDecision> tryConsume(String user) {
+        if (localEnabled) {
+            LocalGrant grant = grants.get(user, key -> new LocalGrant());
+            long remaining = grant.take();
+            if (remaining >= 0) {
+                return Mono.just(RateLimitDecision.consumed(remaining + grant.remoteRemaining));
+            }
+        }
+        return Mono.fromCallable(() -> localEnabled ? reserveGrant(user) : consume(user))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(timeout)
+                .onErrorResume(error -> {
+                    LOGGER.error("Error consuming the rate limit of {}: {}", user, error.toString());
+                    return Mono.just(failOpen ? RateLimitDecision.unknown() : RateLimitDecision.rejected(0));
+                });
+    }
+
+    private RateLimitDecision consume(String user) {
+        ConsumptionProbe probe = resolveBucket(user).tryConsumeAndReturnRemaining(1);
+        return probe.isConsumed()
+                ? RateLimitDecision.consumed(probe.getRemainingTokens())
+                : RateLimitDecision.rejected(probe.getNanosToWaitForRefill());
+    }
+
+    private RateLimitDecision reserveGrant(String user) {
+        Bucket bucket = resolveBucket(user);
+        long size = GUEST.equals(user) ? guestGrantSize : grantSize;
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(size);
+        long granted = probe.isConsumed() ? size : bucket.tryConsumeAsMuchAsPossible(size);
+        if (granted == 0) {
+            return RateLimitDecision.rejected(probe.getNanosToWaitForRefill());
+        }
+        long remoteRemaining = probe.isConsumed() ? probe.getRemainingTokens() : 0;
+        //The first token of the grant is consumed by this request. A grant reserved by a concurrent request is added
+        //to, not replaced, so none of their tokens is lost.
+        LocalGrant grant = grants.asMap().merge(user, new LocalGrant(granted - 1, remoteRemaining), LocalGrant::add);
+        return RateLimitDecision.consumed(grant.tokens() + remoteRemaining);
+    }
+
+    private void giveBack(String user, LocalGrant grant, RemovalCause cause) {
+        if (!cause.wasEvicted() || grant == null) {
+            return;
+        }
+        long left = grant.drain();
+        if (left == 0) {
+            return;
+        }
+        Mono.fromRunnable(() -> resolveBucket(user).addTokens(left))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(timeout)
+                .subscribe(null, error -> LOGGER.error("Error giving back {} tokens of {}: {}", left, user,
+                        error.toString()));
     }
 
     private Supplier<BucketConfiguration> getConfigSupplierForUser(String user) {
-        Bandwidth bandwidth = "GUEST".equals(user)
+        Bandwidth bandwidth = GUEST.equals(user)
                 //1000 requests for any non logged user, focus on quality of service for users logged in.
                 ? Bandwidth.classic(1000, Refill.intervally(1000, Duration.ofMinutes(1)))
                 //10 requests per minute by logged user, enough to finish any booking flow in a minute.
@@ -36,4 +133,41 @@ public class RateLimiter {
                 .addLimit(bandwidth)
                 .build());
     }
-}
\ No newline at end of file
+
+    private static class LocalGrant {
+
+        private long tokens;
+        private volatile long remoteRemaining;
+
+        LocalGrant() {
+            this(0, 0);
+        }
+
+        LocalGrant(long tokens, long remoteRemaining) {
+            this.tokens = tokens;
+            this.remoteRemaining = remoteRemaining;
+        }
+
+        //Returns the tokens left after taking one, or -1 when the grant is exhausted.
+        synchronized long take() {
+            return tokens > 0 ? --tokens : -1;
+        }
+
+        synchronized long tokens() {
+            return tokens;
+        }
+
+        synchronized LocalGrant add(LocalGrant granted) {
+            tokens += granted.tokens;
+            remoteRemaining = granted.remoteRemaining;
+            return this;
+        }
+
+        //Takes all the tokens left, the grant is exhausted afterwards.
+        synchronized long drain() {
+            long left = tokens;
+            tokens = 0;
+            return left;
+        }
+    }
+}
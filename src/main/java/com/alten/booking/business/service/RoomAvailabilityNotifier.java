@@ -0,0 +1,129 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.api.dto.RoomAvailabilityDTO;
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.CANCELLED;
+
+/**
+ * Pushes the availability changes of the rooms to the clients streaming them. The consumer processing a booking
+ * broadcasts the change to every instance, and each instance fans it out from a single subscription to its clients.
+ */
+@Component
+public class RoomAvailabilityNotifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomAvailabilityNotifier.class);
+    private static final String CHANNEL = "room-availability";
+
+    private final Broadcaster broadcaster;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final Sinks.Many<RoomAvailabilityDTO> changes = Sinks.many().multicast().directBestEffort();
+    private Disposable upstream;
+
+    public RoomAvailabilityNotifier(Broadcaster broadcaster,
+                                    ObjectMapper objectMapper,
+                                    @Value("${booking.availability-stream.buffer-size:32}") int bufferSize) {
+        this.broadcaster = broadcaster;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void listen() {
+        upstream = broadcaster.listen(CHANNEL)
+                .concatMap(message -> Mono.fromCallable(() -> objectMapper.readValue(message, RoomAvailabilityDTO.class))
+                        .onErrorResume(error -> {
+                            LOGGER.error("Invalid room availability change {}: {}", message, error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe(changes::tryEmitNext,
+                        error -> LOGGER.error("Error listening to room availability changes: {}", error.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.nonNull(upstream)) {
+            upstream.dispose();
+        }
+        changes.tryEmitComplete();
+    }
+
+    /**
+     * The changes of the room from now on. A client that does not keep up only loses its oldest changes, it never slows
+     * down the others.
+     */
+    public Flux<RoomAvailabilityDTO> changes(Long roomNumber) {
+        return changes.asFlux()
+                .filter(change -> Objects.equals(roomNumber, change.getRoomNumber()))
+                .onBackpressureBuffer(bufferSize,
+                        dropped -> LOGGER.debug("Room availability change dropped for a slow client: {}", dropped),
+                        BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * Only confirmed and cancelled bookings change the availability, a failure to notify never fails the booking. A
+     * booking moved by an update first announces its previous stay as available, then its new one as taken, so the
+     * nights both have in common end up taken.
+     */
+    public Mono<Void> publish(Booking booking) {
+        if (BOOKED != booking.getStatus() && CANCELLED != booking.getStatus()) {
+            return Mono.empty();
+        }
+        RoomAvailabilityDTO change = change(booking.getRoomNumber(), booking.getStartDate(), booking.getEndDate(),
+                CANCELLED == booking.getStatus());
+        return Mono.justOrEmpty(released(booking))
+                .concatWith(Mono.just(change))
+                .concatMap(this::broadcast)
+                .then();
+    }
+
+    private static Optional<RoomAvailabilityDTO> released(Booking booking) {
+        boolean moved = !Objects.equals(booking.getPreviousRoomNumber(), booking.getRoomNumber())
+                || !Objects.equals(booking.getPreviousStartDate(), booking.getStartDate())
+                || !Objects.equals(booking.getPreviousEndDate(), booking.getEndDate());
+        if (BOOKED != booking.getStatus() || Objects.isNull(booking.getPreviousStartDate()) || !moved) {
+            return Optional.empty();
+        }
+        return Optional.of(change(booking.getPreviousRoomNumber(), booking.getPreviousStartDate(),
+                booking.getPreviousEndDate(), true));
+    }
+
+    private static RoomAvailabilityDTO change(Long roomNumber, LocalDate startDate, LocalDate endDate,
+                                              boolean available) {
+        return RoomAvailabilityDTO.builder()
+                .roomNumber(roomNumber)
+                .startDate(startDate)
+                .endDate(endDate)
+                .available(available)
+                .build();
+    }
+
+    private Mono<Void> broadcast(RoomAvailabilityDTO change) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(change))
+                .flatMap(message -> broadcaster.publish(CHANNEL, message))
+                .onErrorResume(error -> {
+                    LOGGER.error("Error notifying room availability change {}: {}", change, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,137 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Local cache of the rooms, which almost never change but are read by every booking request. A change made by any
+ * instance is broadcast so every instance evicts the room.
+ */
+@Component
+public class RoomCatalogCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomCatalogCache.class);
+    private static final String CHANNEL = "room-changes";
+
+    private final RoomRepository repository;
+    private final Broadcaster broadcaster;
+    private final Cache<Long, Room> rooms;
+    //Incremented by every eviction, a room read from mongo before an eviction may be stale and is not kept.
+    private final AtomicLong generation = new AtomicLong();
+    private Disposable invalidations;
+
+    public RoomCatalogCache(RoomRepository repository,
+                            Broadcaster broadcaster,
+                            MeterRegistry meterRegistry,
+                            @Value("${booking.room-cache.ttl:PT10M}") Duration ttl,
+                            @Value("${booking.room-cache.max-size:10000}") long maxSize) {
+        this.repository = repository;
+        this.broadcaster = broadcaster;
+        this.rooms = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, rooms, "rooms");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void listen() {
+        invalidations = broadcaster.listen(CHANNEL)
+                .subscribe(roomNumber -> evict(Long.valueOf(roomNumber)),
+                        error -> LOGGER.error("Error listening to room changes: {}", error.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.nonNull(invalidations)) {
+            invalidations.dispose();
+        }
+    }
+
+    public Mono<Room> findByRoomNumber(Long roomNumber) {
+        Room room = rooms.getIfPresent(roomNumber);
+        if (Objects.nonNull(room)) {
+            return Mono.just(room);
+        }
+        return Mono.defer(() -> {
+            long loadedAt = generation.get();
+            return repository.findByRoomNumber(roomNumber)
+                    .doOnNext(it -> cache(loadedAt, it));
+        });
+    }
+
+    //The rooms missing from the cache are read with a single query, the rooms not found are left out.
+    public Flux<Room> findAllByRoomNumber(Collection<Long> roomNumbers) {
+        Map<Long, Room> cached = rooms.getAllPresent(roomNumbers);
+        List<Long> missing = roomNumbers.stream()
+                .filter(roomNumber -> !cached.containsKey(roomNumber))
+                .distinct()
+                .collect(Collectors.toList());
+        return Flux.fromIterable(cached.values())
+                .concatWith(missing.isEmpty()
+                        ? Flux.empty()
+                        : Flux.defer(() -> {
+                            long loadedAt = generation.get();
+                            return repository.findAllByRoomNumberIn(missing)
+                                    .doOnNext(room -> cache(loadedAt, room));
+                        }));
+    }
+
+    public Mono<Boolean> existsByRoomNumber(Long roomNumber) {
+        return Objects.nonNull(rooms.getIfPresent(roomNumber))
+                ? Mono.just(Boolean.TRUE)
+                : repository.existsByRoomNumber(roomNumber);
+    }
+
+    public Mono<Void> invalidate(Long... roomNumbers) {
+        return Flux.fromArray(roomNumbers)
+                .filter(Objects::nonNull)
+                .distinct()
+                .doOnNext(this::evict)
+                .concatMap(roomNumber -> broadcaster.publish(CHANNEL, String.valueOf(roomNumber)))
+                .then();
+    }
+
+    private void evict(Long roomNumber) {
+        generation.incrementAndGet();
+        rooms.invalidate(roomNumber);
+    }
+
+    /**
+     * Keeps a room read from mongo unless a room was evicted since the read started. An eviction racing with the put is
+     * either seen by the second check, or invalidates the room after it was put, so a stale room is never kept.
+     */
+    private void cache(long loadedAt, Room room) {
+        if (generation.get() != loadedAt) {
+            return;
+        }
+        rooms.put(room.getRoomNumber(), room);
+        if (generation.get() != loadedAt) {
+            rooms.invalidate(room.getRoomNumber());
+        }
+    }
+}
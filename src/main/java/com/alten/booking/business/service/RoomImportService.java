@@ -0,0 +1,125 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.api.dto.RoomDTO;
+import com.alten.booking.api.dto.RoomImportResultDTO;
+import com.alten.booking.business.mapper.RoomMapper;
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.RoomUpsert;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.alten.booking.api.dto.RoomImportResultDTO.Status.CREATED;
+import static com.alten.booking.api.dto.RoomImportResultDTO.Status.FAILED;
+import static com.alten.booking.api.dto.RoomImportResultDTO.Status.UPDATED;
+
+/**
+ * Bulk import of rooms, one json room per line. The lines are validated as they arrive and upserted by room number in
+ * batches of booking.room-import.batch-size, a batch is only requested once the previous one is written, so the
+ * memory used doesn't depend on the size of the upload. Every line gets its result, in the order of the lines.
+ */
+@Service
+public class RoomImportService {
+
+    private final RoomRepository repository;
+    private final RoomMapper mapper;
+    private final RoomCatalogCache cache;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    public RoomImportService(RoomRepository repository,
+                             RoomMapper mapper,
+                             RoomCatalogCache cache,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${booking.room-import.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public Flux<RoomImportResultDTO> importRooms(Flux<String> lines) {
+        return lines.index()
+                .filter(line -> StringUtils.isNotBlank(line.getT2()))
+                .map(line -> parse(line.getT1() + 1, line.getT2()))
+                .buffer(batchSize)
+                .concatMap(this::importBatch);
+    }
+
+    private RoomLine parse(long line, String json) {
+        RoomDTO room;
+        try {
+            room = objectMapper.readValue(json, RoomDTO.class);
+        } catch (JsonProcessingException e) {
+            return new RoomLine(line, null, "Malformed room: " + e.getOriginalMessage());
+        }
+        //The json literal null is read as no room at all.
+        if (Objects.isNull(room)) {
+            return new RoomLine(line, null, "Malformed room: null");
+        }
+        String violations = validator.validate(room).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return new RoomLine(line, room, StringUtils.isEmpty(violations) ? null : violations);
+    }
+
+    private Flux<RoomImportResultDTO> importBatch(List<RoomLine> batch) {
+        List<RoomLine> valid = batch.stream()
+                .filter(line -> Objects.isNull(line.error))
+                .collect(Collectors.toList());
+        return repository.bulkUpsert(valid.stream()
+                        .map(line -> mapper.toEntity(line.room))
+                        .collect(Collectors.toList()))
+                .collectList()
+                .flatMap(upserts -> cache.invalidate(upserts.stream()
+                                .filter(upsert -> !upsert.isFailed())
+                                .map(RoomUpsert::getRoomNumber)
+                                .toArray(Long[]::new))
+                        .thenReturn(upserts))
+                .flatMapIterable(upserts -> results(batch, upserts));
+    }
+
+    //The upserts are in the order of the valid lines of the batch.
+    private static List<RoomImportResultDTO> results(List<RoomLine> batch, List<RoomUpsert> upserts) {
+        Iterator<RoomUpsert> written = upserts.iterator();
+        return batch.stream()
+                .map(line -> {
+                    RoomImportResultDTO.RoomImportResultDTOBuilder result = RoomImportResultDTO.builder()
+                            .line(line.number)
+                            .roomNumber(Objects.isNull(line.room) ? null : line.room.getRoomNumber());
+                    if (Objects.nonNull(line.error)) {
+                        return result.status(FAILED).error(line.error).build();
+                    }
+                    RoomUpsert upsert = written.next();
+                    if (upsert.isFailed()) {
+                        return result.status(FAILED).error(upsert.getError()).build();
+                    }
+                    return result.status(upsert.isCreated() ? CREATED : UPDATED).build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    @AllArgsConstructor
+    private static class RoomLine {
+
+        private final long number;
+        private final RoomDTO room;
+        private final String error;
+    }
+}
@@ -0,0 +1,163 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.RoomNightRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.RoomNight;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+
+/**
+ * Reserves the nights of the confirmed bookings in the room_night collection. The unique (roomNumber, night) index
+ * decides which booking gets a night when several instances confirm overlapping bookings at the same time.
+ */
+@Service
+@AllArgsConstructor
+public class RoomNightService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomNightService.class);
+
+    private final RoomNightRepository repository;
+    private final BookingRepository bookingRepository;
+
+    /**
+     * Reserves all the nights of the booking, or none of them.
+     *
+     * @param isNew a new booking has no night yet, so there is nothing to read before inserting. Its id is assigned by
+     *              the api, so a redelivered event may find the nights of an attempt that failed to save the booking:
+     *              they are released by the failed insert and the insert is tried once more. An updated booking only
+     *              inserts the nights it misses, the ones it no longer needs are released by {@link #releaseStale}.
+     * @return false when at least one night is already reserved by another booking.
+     */
+    public Mono<Boolean> reserve(Booking booking, boolean isNew) {
+        List<RoomNight> nights = nightsOf(booking);
+        if (isNew) {
+            return insert(booking, nights)
+                    .flatMap(reserved -> reserved ? Mono.just(Boolean.TRUE) : insert(booking, nights));
+        }
+        return repository.findAllByBookingId(booking.getId())
+                .collectList()
+                .flatMap(owned -> {
+                    Set<String> ownedKeys = owned.stream().map(RoomNightService::key).collect(Collectors.toSet());
+                    return insert(booking, nights.stream()
+                            .filter(night -> !ownedKeys.contains(key(night)))
+                            .collect(Collectors.toList()));
+                });
+    }
+
+    /**
+     * Releases the nights an updated booking held outside its new stay. Called once the update is persisted: until
+     * then they still belong to the stay saved in mongo, and a failed save leaves them reserved.
+     */
+    public Mono<Void> releaseStale(Booking booking) {
+        Set<String> targetKeys = nightsOf(booking).stream().map(RoomNightService::key).collect(Collectors.toSet());
+        return repository.findAllByBookingId(booking.getId())
+                .filter(night -> !targetKeys.contains(key(night)))
+                .collectList()
+                .flatMap(stale -> stale.isEmpty() ? Mono.empty() : repository.deleteAll(stale));
+    }
+
+    /**
+     * Reserves all the nights of all the new bookings, or none of them, with a single insert. Like for a new booking,
+     * the nights left by an attempt that failed to save the bookings are released and the insert is tried once more.
+     *
+     * @return false when at least one night is already reserved by a booking outside the list.
+     */
+    public Mono<Boolean> reserveAll(List<Booking> bookings) {
+        List<RoomNight> nights = bookings.stream()
+                .flatMap(booking -> nightsOf(booking).stream())
+                .collect(Collectors.toList());
+        List<String> bookingIds = bookings.stream().map(Booking::getId).collect(Collectors.toList());
+        return insertAll(bookingIds, nights)
+                .flatMap(reserved -> reserved ? Mono.just(Boolean.TRUE) : insertAll(bookingIds, nights));
+    }
+
+    public Mono<Void> release(Booking booking) {
+        return repository.deleteByBookingId(booking.getId()).then();
+    }
+
+    /**
+     * Takes back the free nights of a booking released too early, e.g. a cancellation that could not be persisted. The
+     * nights reserved since by another booking are left to it.
+     */
+    public Mono<Void> restore(Booking booking) {
+        return repository.insertMissing(nightsOf(booking)).then();
+    }
+
+    /**
+     * Bookings confirmed before the nights were reserved must hold their nights too. A booking already holding some of
+     * its nights still gets the others.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reserveBookedNights() {
+        bookingRepository.findAllByStatusAndEndDateGreaterThanEqual(BOOKED, LocalDate.now())
+                .concatMap(booking -> repository.insertMissing(nightsOf(booking)))
+                .reduce(0L, Long::sum)
+                .subscribe(count -> LOGGER.info("Room nights reserved for the booked bookings: {}", count),
+                        error -> LOGGER.error("Error reserving the booked room nights: {}", error.getMessage()));
+    }
+
+    private Mono<Boolean> insert(Booking booking, List<RoomNight> nights) {
+        if (nights.isEmpty()) {
+            return Mono.just(Boolean.TRUE);
+        }
+        return repository.insert(nights)
+                .then(Mono.just(Boolean.TRUE))
+                .onErrorResume(RoomNightService::isDuplicateKey, error -> repository
+                        .deleteByBookingIdAndRoomNumberAndNightIn(booking.getId(), booking.getRoomNumber(),
+                                nights.stream().map(RoomNight::getNight).collect(Collectors.toList()))
+                        .thenReturn(Boolean.FALSE));
+    }
+
+    private Mono<Boolean> insertAll(List<String> bookingIds, List<RoomNight> nights) {
+        if (nights.isEmpty()) {
+            return Mono.just(Boolean.TRUE);
+        }
+        return repository.insert(nights)
+                .then(Mono.just(Boolean.TRUE))
+                .onErrorResume(RoomNightService::isDuplicateKey, error -> repository.deleteByBookingIdIn(bookingIds)
+                        .thenReturn(Boolean.FALSE));
+    }
+
+    private static List<RoomNight> nightsOf(Booking booking) {
+        return booking.getStartDate().datesUntil(booking.getEndDate().plusDays(1))
+                .map(night -> RoomNight.builder()
+                        .roomNumber(booking.getRoomNumber())
+                        .night(night)
+                        .bookingId(booking.getId())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private static String key(RoomNight night) {
+        return night.getRoomNumber() + ":" + night.getNight();
+    }
+
+    private static boolean isDuplicateKey(Throwable error) {
+        if (error instanceof DuplicateKeyException) {
+            return true;
+        }
+        if (error instanceof MongoBulkWriteException) {
+            return ((MongoBulkWriteException) error).getWriteErrors().stream()
+                    .anyMatch(it -> ErrorCategory.fromErrorCode(it.getCode()) == ErrorCategory.DUPLICATE_KEY);
+        }
+        return error instanceof MongoWriteException
+                && ((MongoWriteException) error).getError().getCategory() == ErrorCategory.DUPLICATE_KEY;
+    }
+}
@@ -0,0 +1,93 @@
+package com.alten.booking.business.service;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Booked nights of a single room, one bit per day counted from {@code originEpochDay}.
+ * Days before the origin are in the past and can't be booked anymore, so they are simply ignored.
+ */
+public class RoomOccupancy {
+
+    private final long originEpochDay;
+    private final BitSet nights = new BitSet();
+    //booking id -> [startEpochDay, endEpochDay], needed to release or move a booking.
+    private final Map<String, long[]> bookings = new HashMap<>();
+
+    public RoomOccupancy(LocalDate origin) {
+        this.originEpochDay = origin.toEpochDay();
+    }
+
+    public synchronized void book(String id, LocalDate startDate, LocalDate endDate) {
+        release(id);
+        long[] range = {startDate.toEpochDay(), endDate.toEpochDay()};
+        bookings.put(id, range);
+        set(range);
+    }
+
+    public synchronized void release(String id) {
+        long[] range = bookings.remove(id);
+        if (Objects.isNull(range)) {
+            return;
+        }
+        clear(range);
+        //Overlapping bookings should not exist, but if they do their nights must stay booked.
+        bookings.values().stream()
+                .filter(other -> overlaps(other, range[0], range[1]))
+                .forEach(this::set);
+    }
+
+    public synchronized boolean isFree(LocalDate startDate, LocalDate endDate, String excludedId) {
+        if (endDate.toEpochDay() < originEpochDay) {
+            return true;
+        }
+        long[] own = Objects.isNull(excludedId) ? null : bookings.get(excludedId);
+        int from = index(startDate.toEpochDay());
+        int to = index(endDate.toEpochDay());
+        for (int night = nights.nextSetBit(from); night >= 0 && night <= to; night = nights.nextSetBit(night + 1)) {
+            if (Objects.isNull(own) || !overlaps(own, originEpochDay + night, originEpochDay + night)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the booked nights between the given dates, bit 0 being {@code from}.
+     */
+    public synchronized BitSet occupied(LocalDate from, LocalDate to) {
+        BitSet occupied = new BitSet();
+        long first = from.toEpochDay();
+        for (long night = Math.max(first, originEpochDay); night <= to.toEpochDay(); night++) {
+            if (nights.get(index(night))) {
+                occupied.set((int) (night - first));
+            }
+        }
+        return occupied;
+    }
+
+    private void set(long[] range) {
+        if (range[1] < originEpochDay) {
+            return;
+        }
+        nights.set(index(range[0]), index(range[1]) + 1);
+    }
+
+    private void clear(long[] range) {
+        if (range[1] < originEpochDay) {
+            return;
+        }
+        nights.clear(index(range[0]), index(range[1]) + 1);
+    }
+
+    private int index(long epochDay) {
+        return (int) Math.max(0, epochDay - originEpochDay);
+    }
+
+    private static boolean overlaps(long[] range, long startEpochDay, long endEpochDay) {
+        return range[0] <= endEpochDay && range[1] >= startEpochDay;
+    }
+}
@@ -0,0 +1,155 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+
+/**
+ * In memory view of the booked nights of every room, used to answer availability checks without going to mongo.
+ * It is loaded at startup, kept up to date by the booking consumer and fully reloaded every refresh interval, so the
+ * bookings consumed by the other instances are picked up too. While it is cold the callers must ask mongo, which
+ * remains the source of truth. The bookings of the other instances can be missing for up to a refresh interval, so a
+ * room the index sees taken must be confirmed by mongo before a booking is rejected.
+ */
+@Component
+public class RoomOccupancyIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomOccupancyIndex.class);
+
+    private final BookingRepository repository;
+    private final boolean enabled;
+    private final Duration refreshInterval;
+
+    private volatile Map<Long, RoomOccupancy> rooms = new ConcurrentHashMap<>();
+    private volatile boolean warm;
+    private Disposable refresh;
+    //The bookings applied while a rebuild loads, replayed on the loaded rooms so the swap doesn't drop them.
+    private List<Booking> appliedDuringRebuild;
+
+    public RoomOccupancyIndex(BookingRepository repository,
+                              @Value("${booking.occupancy-index.enabled:true}") boolean enabled,
+                              @Value("${booking.occupancy-index.refresh-interval:PT1M}") Duration refreshInterval) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        refresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild()
+                        .onErrorResume(error -> {
+                            LOGGER.error("Error loading room occupancy index: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.nonNull(refresh)) {
+            refresh.dispose();
+        }
+    }
+
+    public Mono<Void> rebuild() {
+        LocalDate today = LocalDate.now();
+        Map<Long, RoomOccupancy> loaded = new ConcurrentHashMap<>();
+        return Mono.fromRunnable(this::recordApplied)
+                .thenMany(repository.findAllByStatusAndEndDateGreaterThanEqual(BOOKED, today))
+                .doOnNext(booking -> loaded.computeIfAbsent(booking.getRoomNumber(), room -> new RoomOccupancy(today))
+                        .book(booking.getId(), booking.getStartDate(), booking.getEndDate()))
+                .then(Mono.fromRunnable(() -> swap(loaded)))
+                .doOnError(error -> stopRecordingApplied())
+                .then();
+    }
+
+    private synchronized void recordApplied() {
+        appliedDuringRebuild = new ArrayList<>();
+    }
+
+    private synchronized void stopRecordingApplied() {
+        appliedDuringRebuild = null;
+    }
+
+    private synchronized void swap(Map<Long, RoomOccupancy> loaded) {
+        appliedDuringRebuild.forEach(booking -> apply(loaded, booking));
+        LOGGER.debug("Room occupancy index loaded for {} rooms, {} bookings replayed", loaded.size(),
+                appliedDuringRebuild.size());
+        appliedDuringRebuild = null;
+        rooms = loaded;
+        warm = true;
+    }
+
+    /**
+     * @return empty while the index is cold, the availability of the room for the booking dates otherwise.
+     */
+    public Optional<Boolean> isAvailable(Booking booking) {
+        if (!warm) {
+            return Optional.empty();
+        }
+        RoomOccupancy occupancy = rooms.get(booking.getRoomNumber());
+        return Optional.of(Objects.isNull(occupancy)
+                || occupancy.isFree(booking.getStartDate(), booking.getEndDate(), booking.getId()));
+    }
+
+    /**
+     * @return empty while the index is cold, the booked nights of the room between the given dates otherwise.
+     */
+    public Optional<BitSet> occupied(Long roomNumber, LocalDate from, LocalDate to) {
+        if (!warm) {
+            return Optional.empty();
+        }
+        RoomOccupancy occupancy = rooms.get(roomNumber);
+        return Optional.of(Objects.isNull(occupancy) ? new BitSet() : occupancy.occupied(from, to));
+    }
+
+    public void apply(Booking booking) {
+        if (Objects.isNull(booking) || Objects.isNull(booking.getId())) {
+            return;
+        }
+        synchronized (this) {
+            if (Objects.nonNull(appliedDuringRebuild)) {
+                appliedDuringRebuild.add(booking);
+            }
+            apply(rooms, booking);
+        }
+    }
+
+    private static void apply(Map<Long, RoomOccupancy> rooms, Booking booking) {
+        if (BOOKED == booking.getStatus()) {
+            rooms.computeIfAbsent(booking.getRoomNumber(), room -> new RoomOccupancy(LocalDate.now()))
+                    .book(booking.getId(), booking.getStartDate(), booking.getEndDate());
+            return;
+        }
+        RoomOccupancy occupancy = rooms.get(booking.getRoomNumber());
+        if (Objects.nonNull(occupancy)) {
+            occupancy.release(booking.getId());
+        }
+    }
+}
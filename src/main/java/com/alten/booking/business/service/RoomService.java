@@ -11,12 +11,16 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+import java.util.Collection;
+
 @Service
 @AllArgsConstructor
 public class RoomService {
 
     private final RoomRepository repository;
     private final RoomMapper mapper;
+    private final RoomCatalogCache cache;
 
     public Flux<RoomDTO> findAll() {
         return repository.findAll()
@@ -24,20 +28,34 @@ public class RoomService {
     }
 
     public Mono<RoomDTO> findByRoomNumber(Long roomNumber) {
-        return repository.findByRoomNumber(roomNumber)
+        return cache.findByRoomNumber(roomNumber)
                 .map(mapper::toDto)
                 .switchIfEmpty(Mono.error(new NotFoundException("Room " + roomNumber + " not found!")));
     }
 
+    public Flux<RoomDTO> findAllByRoomNumber(Collection<Long> roomNumbers) {
+        return cache.findAllByRoomNumber(roomNumbers)
+                .map(mapper::toDto);
+    }
+
+    public Flux<RoomDTO> findAllAvailable(LocalDate startDate, LocalDate endDate, Long guests, Long beds) {
+        if (endDate.isBefore(startDate)) {
+            return Flux.error(new BusinessException("End date should be after start date"));
+        }
+        return repository.findAllAvailable(startDate, endDate, guests, beds)
+                .map(mapper::toDto);
+    }
+
     public Mono<RoomDTO> createRoom(RoomDTO dto) {
         return validateRoomCreation(dto)
                 .map(mapper::toEntity)
                 .flatMap(repository::save)
+                .flatMap(room -> cache.invalidate(room.getRoomNumber()).thenReturn(room))
                 .map(mapper::toDto);
     }
 
     private Mono<RoomDTO> validateRoomCreation(RoomDTO dto) {
-        return repository.existsByRoomNumber(dto.getRoomNumber())
+        return cache.existsByRoomNumber(dto.getRoomNumber())
                 .filter(BooleanUtils::isTrue)
                 .flatMap(aBoolean -> Mono.error(new BusinessException("Room already exists!")))
                 .switchIfEmpty(Mono.just(dto))
@@ -47,8 +65,11 @@ public class RoomService {
     public Mono<RoomDTO> updateRoom(String id, RoomDTO dto) {
         return repository.findById(id)
                 .switchIfEmpty(Mono.error(new NotFoundException("Room " + id + " not found!")))
-                .map(entity -> mapper.copyFromDTO(dto, entity))
-                .flatMap(repository::save)
+                .flatMap(entity -> {
+                    Long previousRoomNumber = entity.getRoomNumber();
+                    return repository.save(mapper.copyFromDTO(dto, entity))
+                            .flatMap(room -> cache.invalidate(previousRoomNumber, room.getRoomNumber()).thenReturn(room));
+                })
                 .map(mapper::toDto);
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.CANCELLED;
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.PENDING;
+
+/**
+ * The booked stays of a single room, as kept in the occupancy state store of the kafka streams processor. The events
+ * of a room are processed one after the other by the task owning its partition, so its decisions need no lock.
+ */
+@Data
+@NoArgsConstructor
+public class RoomStays {
+
+    private List<Stay> stays = new ArrayList<>();
+
+    //The stays of the bookings already BOOKED in the repository, e.g. by the consumer before the streams were enabled.
+    public static RoomStays of(List<Booking> booked) {
+        RoomStays roomStays = new RoomStays();
+        booked.forEach(booking -> roomStays.stays.add(
+                new Stay(booking.getId(), booking.getStartDate(), booking.getEndDate())));
+        return roomStays;
+    }
+
+    /**
+     * Applies the event to the stays of the room, the same way the consumer does with the room nights.
+     *
+     * @return the booking BOOKED when its stay is free, OVERBOOKED when it is a new booking that is not, CANCELLED when
+     * cancelled, and null for an update that could not be applied. An update moving the booking to another room is
+     * never applied: it is keyed by its new room, so the task of its previous room would keep the previous stay.
+     */
+    public Booking decide(Booking booking, LocalDate today) {
+        stays.removeIf(stay -> stay.getEndDate().isBefore(today));
+        if (CANCELLED == booking.getStatus()) {
+            release(booking.getId());
+            return booking;
+        }
+        if (booking.movesRoom()) {
+            return null;
+        }
+        boolean isNew = Objects.isNull(booking.getId()) || PENDING == booking.getStatus();
+        if (isNew) {
+            if (Objects.isNull(booking.getId())) {
+                booking.setId(new ObjectId().toHexString());
+            }
+            if (Objects.isNull(booking.getCreatedDate())) {
+                booking.setCreatedDate(LocalDateTime.now());
+            }
+        }
+        if (isFree(booking.getStartDate(), booking.getEndDate(), booking.getId())) {
+            release(booking.getId());
+            stays.add(new Stay(booking.getId(), booking.getStartDate(), booking.getEndDate()));
+            return booking.booked();
+        }
+        return isNew ? booking.overbooked() : null;
+    }
+
+    public boolean isFree(LocalDate startDate, LocalDate endDate, String excludedId) {
+        return stays.stream()
+                .filter(stay -> !Objects.equals(stay.getBookingId(), excludedId))
+                .noneMatch(stay -> !stay.getStartDate().isAfter(endDate) && !stay.getEndDate().isBefore(startDate));
+    }
+
+    private void release(String bookingId) {
+        stays.removeIf(stay -> Objects.equals(stay.getBookingId(), bookingId));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stay {
+
+        private String bookingId;
+        private LocalDate startDate;
+        private LocalDate endDate;
+    }
+}
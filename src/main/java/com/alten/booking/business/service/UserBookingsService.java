@@ -0,0 +1,163 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.UserBookingsRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.PENDING;
+
+/**
+ * Keeps the {@link UserBookings} read model as the consumer persists the bookings, and serves the active bookings of a
+ * user from it, optionally through a local cache. A change made by any instance is broadcast so every instance evicts
+ * the user, the ttl bounds how stale a user can be read when a broadcast is lost.
+ */
+@Component
+public class UserBookingsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserBookingsService.class);
+    private static final String CHANNEL = "user-bookings-changes";
+    private static final Comparator<UserBookings.Item> BY_START_DATE =
+            Comparator.comparing(UserBookings.Item::getStartDate).thenComparing(UserBookings.Item::getBookingId);
+
+    private final UserBookingsRepository repository;
+    private final BookingRepository bookingRepository;
+    private final Broadcaster broadcaster;
+    private final Clock clock;
+    private final Cache<String, UserBookings> users;
+    private Disposable invalidations;
+
+    public UserBookingsService(UserBookingsRepository repository,
+                               BookingRepository bookingRepository,
+                               Broadcaster broadcaster,
+                               Clock clock,
+                               MeterRegistry meterRegistry,
+                               @Value("${booking.user-bookings.cache.enabled:true}") boolean cacheEnabled,
+                               @Value("${booking.user-bookings.cache.ttl:PT5S}") Duration ttl,
+                               @Value("${booking.user-bookings.cache.max-size:10000}") long maxSize) {
+        this.repository = repository;
+        this.bookingRepository = bookingRepository;
+        this.broadcaster = broadcaster;
+        this.clock = clock;
+        this.users = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(cacheEnabled ? maxSize : 0)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "user-bookings");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void listen() {
+        invalidations = broadcaster.listen(CHANNEL)
+                .subscribe(users::invalidate,
+                        error -> LOGGER.error("Error listening to user bookings changes: {}", error.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.nonNull(invalidations)) {
+            invalidations.dispose();
+        }
+    }
+
+    /**
+     * The active bookings of the user, in (startDate, id) order: a single read of the document of the user, or none
+     * when it is cached. The stays ended since the last update of the document are left out.
+     */
+    public Mono<List<UserBookings.Item>> findActiveByUsername(String username) {
+        UserBookings cached = users.getIfPresent(username);
+        Mono<UserBookings> document = Objects.nonNull(cached)
+                ? Mono.just(cached)
+                : repository.findById(username).doOnNext(it -> users.put(username, it));
+        LocalDate today = LocalDate.now(clock);
+        return document
+                .map(it -> Objects.isNull(it.getBookings()) ? List.<UserBookings.Item>of() : it.getBookings().stream()
+                        .filter(item -> BOOKED == item.getStatus() && !item.getEndDate().isBefore(today))
+                        .sorted(BY_START_DATE)
+                        .collect(Collectors.toList()))
+                .defaultIfEmpty(List.of());
+    }
+
+    /**
+     * Applies a booking just persisted by the consumer to the document of its user, in place of the previous version
+     * of the booking unless the document already holds a newer one. Only its BOOKED stays are read.
+     */
+    public Mono<Void> apply(Booking booking) {
+        if (PENDING == booking.getStatus() || Objects.isNull(booking.getUsername())
+                || Objects.isNull(booking.getId())) {
+            return Mono.empty();
+        }
+        return repository.putBooking(booking.getUsername(), toItem(booking), LocalDate.now(clock))
+                .then(invalidate(booking.getUsername()));
+    }
+
+    /**
+     * Bookings persisted before the read model existed are put in it, once: the marker is written when the rebuild
+     * completes. A rebuild racing the consumer, or another instance, never overwrites a newer version of a booking.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDate today = LocalDate.now(clock);
+        repository.existsById(UserBookings.REBUILT_MARKER)
+                .filter(rebuilt -> !rebuilt)
+                .flatMap(it -> bookingRepository.findAllByStatusAndEndDateGreaterThanEqual(BOOKED, today)
+                        .filter(booking -> Objects.nonNull(booking.getUsername()))
+                        .concatMap(booking -> repository.putBooking(booking.getUsername(), toItem(booking), today)
+                                .thenReturn(booking))
+                        .count()
+                        .flatMap(count -> repository.save(UserBookings.builder()
+                                        .username(UserBookings.REBUILT_MARKER)
+                                        .updatedDate(LocalDateTime.now(clock))
+                                        .build())
+                                .thenReturn(count)))
+                .subscribe(count -> LOGGER.info("User bookings read model rebuilt with {} bookings", count),
+                        error -> LOGGER.error("Error rebuilding the user bookings: {}", error.getMessage()));
+    }
+
+    //A failure to broadcast never fails the booking, the other instances read the user again after the ttl.
+    private Mono<Void> invalidate(String username) {
+        users.invalidate(username);
+        return broadcaster.publish(CHANNEL, username)
+                .onErrorResume(error -> {
+                    LOGGER.error("Error broadcasting the change of user {}: {}", username, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static UserBookings.Item toItem(Booking booking) {
+        return UserBookings.Item.builder()
+                .bookingId(booking.getId())
+                .roomNumber(booking.getRoomNumber())
+                .groupId(booking.getGroupId())
+                .status(booking.getStatus())
+                .startDate(booking.getStartDate())
+                .endDate(booking.getEndDate())
+                .updatedDate(booking.getUpdatedDate())
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.alten.booking.infrastructure.config;
+
+import com.alten.booking.business.service.BookingPolicyProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(BookingPolicyProperties.class)
+public class BookingPolicyConfig {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
@@ -0,0 +1,61 @@
+package com.alten.booking.infrastructure.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaConfig {
+
+    //The reactive consumer acknowledges the messages when they are persisted, which is not always in offset order. It
+    //acknowledges every message in the end, a gap would hold back the commits of the partition.
+    @Bean
+    public ListenerContainerCustomizer<AbstractMessageListenerContainer<?, ?>> asyncAcksCustomizer() {
+        return (container, destination, group) -> {
+            ContainerProperties properties = container.getContainerProperties();
+            if (ContainerProperties.AckMode.MANUAL == properties.getAckMode()) {
+                properties.setAsyncAcks(true);
+            }
+        };
+    }
+
+    /**
+     * The booking events are sent by a single idempotent producer shared by all the requests: its sends are batched by
+     * linger.ms and batch.size, and a send completes with the acknowledgment of all the in sync replicas.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "booking.event-bus", havingValue = "kafka", matchIfMissing = true)
+    public KafkaSender<byte[], byte[]> bookingEventSender(
+            @Value("${spring.cloud.stream.kafka.binder.brokers}") String brokers,
+            @Value("${booking.producer.linger-ms:5}") int lingerMs,
+            @Value("${booking.producer.batch-size:65536}") int batchSize,
+            @Value("${booking.producer.compression-type:lz4}") String compressionType,
+            @Value("${booking.producer.max-block:PT1S}") Duration maxBlock,
+            @Value("${booking.producer.max-in-flight:1024}") int maxInFlight) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        properties.put(ProducerConfig.ACKS_CONFIG, "all");
+        properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        properties.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlock.toMillis());
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        return KafkaSender.create(SenderOptions.<byte[], byte[]>create(properties)
+                .maxInFlight(maxInFlight)
+                .stopOnError(false));
+    }
+}
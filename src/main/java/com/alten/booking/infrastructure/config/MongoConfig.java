@@ -1,11 +1,14 @@
 package com.alten.booking.infrastructure.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
 import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
 import org.springframework.test.context.ActiveProfiles;
 
+//The local profile keeps the documents in memory, see the in memory repositories.
 @Configuration
+@Profile("!local")
 @ActiveProfiles("prd")
 @EnableReactiveMongoRepositories(basePackages = "com.alten.booking.infrastructure.repository")
 @EnableReactiveMongoAuditing
@@ -0,0 +1,23 @@
+package com.alten.booking.infrastructure.idempotency;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Where the responses of the commands sent with an idempotency key are kept, shared by all the running instances.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @return true when the key was free and is now held by the caller, until it completes or releases it.
+     */
+    Mono<Boolean> tryReserve(String key, String marker, Duration ttl);
+
+    Mono<String> get(String key);
+
+    Mono<Void> complete(String key, String response, Duration ttl);
+
+    Mono<Void> release(String key);
+
+}
@@ -0,0 +1,62 @@
+package com.alten.booking.infrastructure.idempotency;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The idempotency keys of a single instance, with the same expiration as the redis buckets.
+ */
+@Component
+@Profile("local")
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Boolean> tryReserve(String key, String marker, Duration ttl) {
+        return Mono.fromSupplier(() -> {
+            Entry reserved = new Entry(marker, expiration(ttl));
+            return entries.compute(key, (it, entry) -> isLive(entry) ? entry : reserved) == reserved;
+        });
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = entries.get(key);
+            return isLive(entry) ? entry.value : null;
+        });
+    }
+
+    @Override
+    public Mono<Void> complete(String key, String response, Duration ttl) {
+        return Mono.fromRunnable(() -> entries.put(key, new Entry(response, expiration(ttl))));
+    }
+
+    @Override
+    public Mono<Void> release(String key) {
+        return Mono.fromRunnable(() -> entries.remove(key));
+    }
+
+    private static long expiration(Duration ttl) {
+        return System.nanoTime() + ttl.toNanos();
+    }
+
+    private static boolean isLive(Entry entry) {
+        return Objects.nonNull(entry) && entry.expiresAt - System.nanoTime() > 0;
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+
+        private final String value;
+        private final long expiresAt;
+    }
+}
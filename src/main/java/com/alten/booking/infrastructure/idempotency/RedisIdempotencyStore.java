@@ -0,0 +1,45 @@
+package com.alten.booking.infrastructure.idempotency;
+
+import lombok.AllArgsConstructor;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Profile("!local")
+@AllArgsConstructor
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private final RedissonClient redissonClient;
+
+    @Override
+    public Mono<Boolean> tryReserve(String key, String marker, Duration ttl) {
+        return Mono.fromCompletionStage(() -> bucket(key).trySetAsync(marker, ttl.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return Mono.fromCompletionStage(() -> bucket(key).getAsync());
+    }
+
+    @Override
+    public Mono<Void> complete(String key, String response, Duration ttl) {
+        return Mono.fromCompletionStage(() -> bucket(key).setAsync(response, ttl.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public Mono<Void> release(String key) {
+        return Mono.fromCompletionStage(() -> bucket(key).deleteAsync())
+                .then();
+    }
+
+    private RBucket<String> bucket(String key) {
+        return redissonClient.getBucket(key, StringCodec.INSTANCE);
+    }
+}
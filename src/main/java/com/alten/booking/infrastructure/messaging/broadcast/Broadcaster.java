@@ -0,0 +1,15 @@
+package com.alten.booking.infrastructure.messaging.broadcast;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fire and forget notifications delivered to every running instance of the service.
+ */
+public interface Broadcaster {
+
+    Mono<Void> publish(String channel, String message);
+
+    Flux<String> listen(String channel);
+
+}
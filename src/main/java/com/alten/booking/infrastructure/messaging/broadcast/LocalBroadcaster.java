@@ -0,0 +1,40 @@
+package com.alten.booking.infrastructure.messaging.broadcast;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The notifications of a single instance, delivered in process. Like the redis topics, a listener that does not keep up
+ * misses the messages.
+ */
+@Component
+@Profile("local")
+public class LocalBroadcaster implements Broadcaster {
+
+    private final Map<String, Sinks.Many<String>> channels = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> publish(String channel, String message) {
+        return Mono.fromRunnable(() -> {
+            Sinks.Many<String> sink = channel(channel);
+            synchronized (sink) {
+                sink.tryEmitNext(message);
+            }
+        });
+    }
+
+    @Override
+    public Flux<String> listen(String channel) {
+        return channel(channel).asFlux();
+    }
+
+    private Sinks.Many<String> channel(String channel) {
+        return channels.computeIfAbsent(channel, it -> Sinks.many().multicast().directBestEffort());
+    }
+}
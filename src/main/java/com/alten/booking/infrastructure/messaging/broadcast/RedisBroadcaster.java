@@ -0,0 +1,37 @@
+package com.alten.booking.infrastructure.messaging.broadcast;
+
+import lombok.AllArgsConstructor;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Component
+@Profile("!local")
+@AllArgsConstructor
+public class RedisBroadcaster implements Broadcaster {
+
+    private final RedissonClient redissonClient;
+
+    @Override
+    public Mono<Void> publish(String channel, String message) {
+        return Mono.fromCompletionStage(() -> topic(channel).publishAsync(message))
+                .then();
+    }
+
+    @Override
+    public Flux<String> listen(String channel) {
+        return Flux.create(sink -> {
+            RTopic topic = topic(channel);
+            int listenerId = topic.addListener(String.class, (name, message) -> sink.next(message));
+            sink.onDispose(() -> topic.removeListener(listenerId));
+        });
+    }
+
+    private RTopic topic(String channel) {
+        return redissonClient.getTopic(channel, StringCodec.INSTANCE);
+    }
+}
@@ -1,39 +1,264 @@
 package com.alten.booking.infrastructure.messaging.consumer;
 
 import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.business.service.BookingMetrics;
 import com.alten.booking.business.service.BookingService;
+import com.alten.booking.business.service.BookingStatusNotifier;
+import com.alten.booking.business.service.RoomAvailabilityNotifier;
+import com.alten.booking.business.service.RoomOccupancyIndex;
+import com.alten.booking.business.service.UserBookingsService;
 import com.alten.booking.infrastructure.repository.entity.Booking;
-import lombok.AllArgsConstructor;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.alten.booking.infrastructure.repository.entity.BookingStatus.CANCELLED;
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.PENDING;
 
 @Component
-@AllArgsConstructor
 public class BookingEventConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookingEventConsumer.class);
 
     private final BookingService bookingService;
+    private final RoomOccupancyIndex occupancyIndex;
+    private final RoomAvailabilityNotifier availabilityNotifier;
+    private final BookingStatusNotifier statusNotifier;
+    private final BookingMetrics metrics;
+    private final UserBookingsService userBookings;
+    private final int inFlight;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
 
+    public BookingEventConsumer(BookingService bookingService,
+                                RoomOccupancyIndex occupancyIndex,
+                                RoomAvailabilityNotifier availabilityNotifier,
+                                BookingStatusNotifier statusNotifier,
+                                BookingMetrics metrics,
+                                UserBookingsService userBookings,
+                                @Value("${booking.consumer.in-flight:16}") int inFlight,
+                                @Value("${booking.consumer.retry.max-attempts:10}") int maxAttempts,
+                                @Value("${booking.consumer.retry.backoff:PT0.1S}") Duration backoff,
+                                @Value("${booking.consumer.retry.max-backoff:PT30S}") Duration maxBackoff,
+                                @Value("${booking.consumer.function:}") String functions,
+                                @Value("${booking.streams.enabled:false}") boolean streamsEnabled) {
+        requireGroupConsumer(functions, streamsEnabled);
+        this.bookingService = bookingService;
+        this.occupancyIndex = occupancyIndex;
+        this.availabilityNotifier = availabilityNotifier;
+        this.statusNotifier = statusNotifier;
+        this.metrics = metrics;
+        this.userBookings = userBookings;
+        this.inFlight = inFlight;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * The api accepts group bookings unless the streams decide the bookings, so a binding without their consumer would
+     * leave them PENDING forever. The local profile binds no function, its listener consumes them all.
+     */
+    static void requireGroupConsumer(String functions, boolean streamsEnabled) {
+        if (streamsEnabled || functions.isBlank()) {
+            return;
+        }
+        if (Arrays.stream(functions.split(";")).map(String::trim).noneMatch("bookingGroupEventInput"::equals)) {
+            throw new IllegalStateException("booking.consumer.function must bind bookingGroupEventInput: " + functions);
+        }
+    }
+
+    /**
+     * The rooms are spread over a fixed number of lanes: the lanes are processed concurrently, the events of a lane,
+     * so of a room, one after the other. A message is only acknowledged once its booking is persisted.
+     */
+    @Bean
+    public Function<Flux<Message<Booking>>, Mono<Void>> bookingEventInput() {
+        return messages -> inLanes(messages, this::handle);
+    }
+
+    /**
+     * Sink of the bookings decided by the kafka streams processor on booking-results, processed in lanes the same way.
+     */
+    @Bean
+    public Function<Flux<Message<Booking>>, Mono<Void>> bookingResultInput() {
+        return messages -> inLanes(messages, this::persistDecided);
+    }
+
+    /**
+     * The group bookings of booking-groups, each confirmed as a whole. The room nights decide between the groups and
+     * the bookings of the same rooms, so the groups don't need the order of a lane and are processed concurrently.
+     */
     @Bean
-    public Consumer<Message<Booking>> bookingEventInput() {
-        return message -> Mono.just(message.getPayload())
+    public Function<Flux<Message<BookingGroup>>, Mono<Void>> bookingGroupEventInput() {
+        return messages -> messages
+                .flatMap(this::processGroup, inFlight)
+                .then();
+    }
+
+    private Mono<Void> processGroup(Message<BookingGroup> message) {
+        return Mono.justOrEmpty(message.getPayload())
+                .filter(group -> Objects.nonNull(group.getBookings()) && !group.getBookings().isEmpty())
+                .switchIfEmpty(Mono.error(new BusinessException("invalid group event input " + message.getPayload())))
+                .doOnNext(group -> LOGGER.info("Booking group message received: {}", group))
+                .flatMapMany(this::handleGroup)
+                .doOnNext(occupancyIndex::apply)
+                .concatMap(this::notifyProcessed)
+                .count()
+                .retryWhen(untilPersisted("group message"))
+                .doOnSuccess(count -> LOGGER.info("Booking group processed with success: {} bookings", count))
+                .then(Mono.fromRunnable(() -> acknowledge(message)))
+                .onErrorResume(BusinessException.class, error -> {
+                    LOGGER.error("Error processing group message: {}", error.getMessage());
+                    acknowledge(message);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    //The group is timed with its retries, the outcome is the status all its bookings end with.
+    private Flux<Booking> handleGroup(BookingGroup group) {
+        return metrics.timed(BookingMetrics.CONSUMER_PROCESSING,
+                        Flux.defer(() -> bookingService.confirmGroup(group)).collectList()
+                                .retryWhen(Retry.backoff(maxAttempts - 1L, backoff)
+                                        .filter(error -> !(error instanceof BusinessException))),
+                        processed -> processed.get(0).getStatus().name())
+                .doOnError(error -> metrics.countEvent(BookingMetrics.outcomeOf(error)))
+                .flatMapIterable(processed -> processed)
+                .doOnNext(processed -> record(processed, true));
+    }
+
+    private Mono<Void> inLanes(Flux<Message<Booking>> messages, Function<Booking, Mono<Booking>> handler) {
+        return messages
+                .groupBy(message -> Math.floorMod(Objects.hashCode(message.getPayload().getRoomNumber()), inFlight))
+                .flatMap(lane -> lane.concatMap(message -> process(message, handler)), inFlight)
+                .then();
+    }
+
+    private Mono<Void> process(Message<Booking> message, Function<Booking, Mono<Booking>> handler) {
+        return Mono.justOrEmpty(message.getPayload())
                 .switchIfEmpty(Mono.error(new BusinessException("invalid event input " + message.getPayload())))
                 .doOnNext(dto -> LOGGER.info("Booking message received: {}", dto))
-                .flatMap(booking -> CANCELLED == booking.getStatus()
-                        ? bookingService.cancel(booking)
-                        : bookingService.createOrUpdate(booking))
+                .flatMap(handler)
+                .doOnNext(occupancyIndex::apply)
+                .flatMap(this::notifyProcessed)
+                .retryWhen(untilPersisted("message"))
                 .doOnSuccess(booking -> LOGGER.info("Booking processed with success: {}", booking))
-                .doOnError(error -> LOGGER.error("Error processing message: {}", error.getMessage()))
-                .subscribe();
+                .then(Mono.fromRunnable(() -> acknowledge(message)))
+                .onErrorResume(BusinessException.class, error -> {
+                    LOGGER.error("Error processing message: {}", error.getMessage());
+                    acknowledge(message);
+                    return Mono.empty();
+                })
+                .then();
     }
-}
 
+    /**
+     * With the async acks, an offset left unacknowledged holds back the commits of all the later offsets of its
+     * partition, and nothing would consume it again before a rebalance. So a technical error is processed again, like
+     * a redelivery would, with a backoff capped by booking.consumer.retry.max-backoff, until it succeeds.
+     */
+    private Retry untilPersisted(String kind) {
+        return Retry.backoff(Long.MAX_VALUE, backoff)
+                .maxBackoff(maxBackoff)
+                .filter(error -> !(error instanceof BusinessException))
+                .doBeforeRetry(signal -> LOGGER.error("Error persisting {}, processing it again: {}", kind,
+                        signal.failure().getMessage()));
+    }
+
+    //Deferred, so every retry decides the booking again instead of replaying the decision of the first attempt.
+    private Mono<Booking> handle(Booking booking) {
+        boolean pending = PENDING == booking.getStatus();
+        return timed(booking, CANCELLED == booking.getStatus()
+                ? Mono.defer(() -> bookingService.cancel(booking))
+                : Mono.defer(() -> bookingService.createOrUpdate(booking)))
+                .doOnNext(processed -> record(processed, pending));
+    }
+
+    //Already decided, a new booking can't be told apart from an update, so the confirmation latency is not recorded.
+    private Mono<Booking> persistDecided(Booking booking) {
+        return timed(booking, Mono.defer(() -> bookingService.persistDecided(booking)))
+                .doOnNext(processed -> record(processed, false));
+    }
+
+    //Timed with its retries, the outcome is the status the booking ends with.
+    private Mono<Booking> timed(Booking booking, Mono<Booking> handled) {
+        return metrics.timed(BookingMetrics.CONSUMER_PROCESSING,
+                        handled.retryWhen(Retry.backoff(maxAttempts - 1L, backoff)
+                                .filter(error -> !(error instanceof BusinessException))),
+                        processed -> processed.getStatus().name())
+                .doOnError(error -> metrics.countEvent(BookingMetrics.outcomeOf(error)));
+    }
+
+    private void record(Booking booking, boolean pending) {
+        metrics.countEvent(booking.getStatus().name());
+        if (pending) {
+            metrics.recordConfirmation(booking);
+        }
+    }
+
+    //The read model of the user is updated before the notifications, a failure is processed again like the persistence.
+    private Mono<Booking> notifyProcessed(Booking booking) {
+        return userBookings.apply(booking)
+                .then(availabilityNotifier.publish(booking))
+                .then(statusNotifier.publish(booking))
+                .thenReturn(booking);
+    }
+
+    private static void acknowledge(Message<?> message) {
+        Acknowledgment acknowledgment = message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+        if (Objects.nonNull(acknowledgment)) {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    /**
+     * Batch mode alternative to {@link #bookingEventInput()}, enabled with booking.consumer.function. The whole poll is
+     * resolved in memory and persisted with one bulk write before the listener thread returns. A technical error is
+     * thrown to the binder, so the poll is not committed and is consumed again.
+     */
+    @Bean
+    public Consumer<List<Booking>> bookingBatchEventInput() {
+        return bookings -> Mono.just(bookings)
+                .doOnNext(batch -> LOGGER.info("Booking batch received: {} messages", batch.size()))
+                .flatMapMany(this::handleAll)
+                .doOnNext(occupancyIndex::apply)
+                .concatMap(this::notifyProcessed)
+                .count()
+                .doOnSuccess(count -> LOGGER.info("Booking batch processed with success: {} bookings", count))
+                .doOnError(error -> LOGGER.error("Error processing batch: {}", error.getMessage()))
+                .onErrorResume(BusinessException.class, error -> Mono.empty())
+                .block();
+    }
+
+    //The bookings are resolved in place, so the new ones are told apart by identity once they are no longer PENDING.
+    private Flux<Booking> handleAll(List<Booking> bookings) {
+        Set<Booking> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        bookings.stream().filter(booking -> PENDING == booking.getStatus()).forEach(pending::add);
+        return metrics.timed(BookingMetrics.CONSUMER_PROCESSING,
+                        bookingService.createOrUpdateAll(bookings).collectList())
+                .doOnError(error -> metrics.countEvent(BookingMetrics.outcomeOf(error)))
+                .flatMapIterable(processed -> processed)
+                .doOnNext(processed -> record(processed, pending.contains(processed)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.alten.booking.infrastructure.messaging.consumer;
+
+import com.alten.booking.infrastructure.messaging.producer.LocalBookingEventProducer;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Binds {@link BookingEventConsumer#bookingEventInput()} and {@link BookingEventConsumer#bookingGroupEventInput()} to
+ * the in process event bus, the way the kafka binder does to booking-operations and booking-groups: the events are
+ * processed in the same lanes, with the same retries and notifications. Unlike kafka, nothing is redelivered: a
+ * technical error is retried in memory until the event is persisted, and an event is lost if the instance stops.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.event-bus", havingValue = "local")
+public class LocalBookingEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalBookingEventListener.class);
+
+    private final LocalBookingEventProducer producer;
+    private final Function<Flux<Message<Booking>>, Mono<Void>> bookingEventInput;
+    private final Function<Flux<Message<BookingGroup>>, Mono<Void>> bookingGroupEventInput;
+
+    public LocalBookingEventListener(LocalBookingEventProducer producer,
+                                     @Qualifier("bookingEventInput")
+                                     Function<Flux<Message<Booking>>, Mono<Void>> bookingEventInput,
+                                     @Qualifier("bookingGroupEventInput")
+                                     Function<Flux<Message<BookingGroup>>, Mono<Void>> bookingGroupEventInput) {
+        this.producer = producer;
+        this.bookingEventInput = bookingEventInput;
+        this.bookingGroupEventInput = bookingGroupEventInput;
+    }
+
+    //The events sent before the application is ready are buffered by the bus.
+    @EventListener(ApplicationReadyEvent.class)
+    public void listen() {
+        bookingEventInput.apply(producer.events())
+                .subscribe(null, error -> LOGGER.error("Error consuming the local booking events: {}",
+                        error.getMessage()));
+        bookingGroupEventInput.apply(producer.groupEvents())
+                .subscribe(null, error -> LOGGER.error("Error consuming the local booking group events: {}",
+                        error.getMessage()));
+    }
+}
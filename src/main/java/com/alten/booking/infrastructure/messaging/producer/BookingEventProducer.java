@@ -1,29 +1,84 @@
 package com.alten.booking.infrastructure.messaging.producer;
 
 import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.business.service.BookingMetrics;
 import com.alten.booking.infrastructure.repository.entity.Booking;
-import lombok.AllArgsConstructor;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Sends the booking events without blocking the calling thread, the returned mono completes when the event is
+ * acknowledged by the brokers, so a request is only answered once its event is durably accepted.
+ */
 @Component
-@AllArgsConstructor
-public class BookingEventProducer {
+@ConditionalOnProperty(name = "booking.event-bus", havingValue = "kafka", matchIfMissing = true)
+public class BookingEventProducer implements BookingEventPublisher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookingEventProducer.class);
 
-    private StreamBridge streamBridge;
+    private final KafkaSender<byte[], byte[]> sender;
+    private final ObjectMapper objectMapper;
+    private final BookingMetrics metrics;
+    private final String topic;
+    private final String groupTopic;
+
+    public BookingEventProducer(KafkaSender<byte[], byte[]> sender,
+                                ObjectMapper objectMapper,
+                                BookingMetrics metrics,
+                                @Value("${booking.producer.topic:booking-operations}") String topic,
+                                @Value("${booking.producer.group-topic:booking-groups}") String groupTopic) {
+        this.sender = sender;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.topic = topic;
+        this.groupTopic = groupTopic;
+    }
 
+    //All the events of a room land in the same partition, so they are consumed in order by a single consumer thread.
+    @Override
     public Mono<Booking> bookingEventOutput(Booking booking) {
-        return Mono.just(streamBridge.send("bookingEventOutput-out-0", booking))
-                .filter(Boolean::booleanValue)
-                .doOnError(error -> LOGGER.error("Error producing message: " + booking, error))
-                .doOnSuccess(dto -> LOGGER.info("Booking message sent: {}", booking))
-                .switchIfEmpty(Mono.error(new BusinessException("Error producing message: " + booking)))
-                .map(it -> booking);
+        return send(topic, String.valueOf(booking.getRoomNumber()), booking.getId(), booking);
+    }
+
+    //The rooms of a group are spread over the partitions, so a group is keyed by its id and its room nights decide it.
+    @Override
+    public Mono<BookingGroup> bookingGroupEventOutput(BookingGroup group) {
+        return send(groupTopic, group.getId(), group.getId(), group);
+    }
+
+    private <T> Mono<T> send(String destination, String key, String id, T event) {
+        return metrics.timed(BookingMetrics.PRODUCER_SEND,
+                        Mono.fromCallable(() -> record(destination, key, id, event))
+                                .flatMap(record -> sender.send(Mono.just(record)).next()))
+                .flatMap(result -> Objects.isNull(result.exception())
+                        ? Mono.just(event)
+                        : Mono.error(result.exception()))
+                .doOnError(error -> LOGGER.error("Error producing message: " + event, error))
+                .doOnSuccess(sent -> LOGGER.info("Booking message sent: {}", event))
+                .onErrorMap(error -> !(error instanceof BusinessException),
+                        error -> new BusinessException("Error producing message: " + event))
+                .switchIfEmpty(Mono.error(() -> new BusinessException("Error producing message: " + event)));
+    }
+
+    //The payload is the json the consumer binding expects, its contentType is set on the binding.
+    private SenderRecord<byte[], byte[], String> record(String destination, String key, String id, Object event)
+            throws Exception {
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(destination,
+                key.getBytes(StandardCharsets.UTF_8),
+                objectMapper.writeValueAsBytes(event));
+        return SenderRecord.create(record, id);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.alten.booking.infrastructure.messaging.producer;
+
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
+import reactor.core.publisher.Mono;
+
+/**
+ * Where the booking events go, kafka or the in process bus of booking.event-bus=local. The returned mono completes with
+ * the event once the bus accepted it.
+ */
+public interface BookingEventPublisher {
+
+    Mono<Booking> bookingEventOutput(Booking booking);
+
+    Mono<BookingGroup> bookingGroupEventOutput(BookingGroup group);
+
+}
@@ -0,0 +1,66 @@
+package com.alten.booking.infrastructure.messaging.producer;
+
+import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.business.service.BookingMetrics;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * The in process event bus of booking.event-bus=local, in place of kafka: the events are handed to the booking consumer
+ * of the same instance by {@link com.alten.booking.infrastructure.messaging.consumer.LocalBookingEventListener}, so
+ * the whole service runs in one JVM. The bus is lossy: an event is only kept in memory, nothing redelivers it, so the
+ * events still buffered or being retried by the consumer are lost if the instance stops.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.event-bus", havingValue = "local")
+public class LocalBookingEventProducer implements BookingEventPublisher {
+
+    private final ObjectMapper objectMapper;
+    private final BookingMetrics metrics;
+    private final Sinks.Many<Message<Booking>> events = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Many<Message<BookingGroup>> groupEvents = Sinks.many().unicast().onBackpressureBuffer();
+
+    public LocalBookingEventProducer(ObjectMapper objectMapper, BookingMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Booking> bookingEventOutput(Booking booking) {
+        return emit(events, booking, Booking.class);
+    }
+
+    @Override
+    public Mono<BookingGroup> bookingGroupEventOutput(BookingGroup group) {
+        return emit(groupEvents, group, BookingGroup.class);
+    }
+
+    //The consumer gets its own copy of the event, as it does from kafka, and not the instance the api still maps.
+    private <T> Mono<T> emit(Sinks.Many<Message<T>> sink, T event, Class<T> type) {
+        return metrics.timed(BookingMetrics.PRODUCER_SEND, Mono.fromCallable(() -> {
+            Message<T> message = MessageBuilder.withPayload(objectMapper.convertValue(event, type)).build();
+            synchronized (sink) {
+                if (sink.tryEmitNext(message).isFailure()) {
+                    throw new BusinessException("Error producing message: " + event);
+                }
+            }
+            return event;
+        }));
+    }
+
+    public Flux<Message<Booking>> events() {
+        return events.asFlux();
+    }
+
+    public Flux<Message<BookingGroup>> groupEvents() {
+        return groupEvents.asFlux();
+    }
+}
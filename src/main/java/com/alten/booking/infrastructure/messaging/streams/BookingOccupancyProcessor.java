@@ -0,0 +1,102 @@
+package com.alten.booking.infrastructure.messaging.streams;
+
+import com.alten.booking.business.service.RoomStays;
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import lombok.AllArgsConstructor;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+
+/**
+ * Alternative to the booking consumer, enabled with booking.consumer.function: the bookings are decided inside a kafka
+ * streams processor, against the stays of their room kept in a RocksDB state store backed by a changelog topic, and
+ * the decided bookings are published to booking-results, where the bookingResultInput sink persists them.
+ */
+@Component
+@AllArgsConstructor
+public class BookingOccupancyProcessor {
+
+    public static final String STORE = "room-occupancy";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingOccupancyProcessor.class);
+
+    private final BookingRepository repository;
+
+    @Bean
+    public StoreBuilder<KeyValueStore<String, RoomStays>> roomOccupancyStore() {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(STORE), Serdes.String(),
+                new JsonSerde<>(RoomStays.class));
+    }
+
+    //Keyed by room number like booking-operations, so a room is always decided by the task owning its partition.
+    @Bean
+    public Function<KStream<String, Booking>, KStream<String, Booking>> bookingOccupancyProcessor() {
+        return bookings -> bookings
+                .filter((room, booking) -> Objects.nonNull(booking) && Objects.nonNull(booking.getRoomNumber()))
+                .transformValues(() -> new OccupancyTransformer(repository), STORE)
+                .filter((room, booking) -> Objects.nonNull(booking));
+    }
+
+    private static class OccupancyTransformer implements ValueTransformerWithKey<String, Booking, Booking> {
+
+        private final BookingRepository repository;
+        private KeyValueStore<String, RoomStays> store;
+
+        private OccupancyTransformer(BookingRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void init(ProcessorContext context) {
+            store = (KeyValueStore<String, RoomStays>) context.getStateStore(STORE);
+        }
+
+        @Override
+        public Booking transform(String key, Booking booking) {
+            String room = String.valueOf(booking.getRoomNumber());
+            LocalDate today = LocalDate.now();
+            RoomStays stays = store.get(room);
+            if (Objects.isNull(stays)) {
+                stays = seed(booking.getRoomNumber(), today);
+            }
+            Booking decided = stays.decide(booking, today);
+            store.put(room, stays);
+            if (Objects.isNull(decided)) {
+                LOGGER.error("Error processing message: Could not update your booking! {}", booking);
+            }
+            return decided;
+        }
+
+        /**
+         * A room seen for the first time starts from its bookings already BOOKED in the repository, so the store never
+         * gives away nights booked before it existed. It runs on the stream thread, which may block.
+         */
+        private RoomStays seed(Long roomNumber, LocalDate today) {
+            return RoomStays.of(repository.findAllByRoomNumberAndStatus(roomNumber, BOOKED)
+                    .filter(booked -> !booked.getEndDate().isBefore(today))
+                    .collectList()
+                    .block());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
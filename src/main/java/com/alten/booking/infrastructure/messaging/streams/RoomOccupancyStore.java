@@ -0,0 +1,116 @@
+package com.alten.booking.infrastructure.messaging.streams;
+
+import com.alten.booking.business.service.BookingMetrics;
+import com.alten.booking.business.service.RoomStays;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.binder.kafka.streams.InteractiveQueryService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Answers the availability of a room from the occupancy state store of {@link BookingOccupancyProcessor}, through the
+ * interactive queries: locally when this instance owns the partition of the room, from the owning instance otherwise.
+ * It answers empty when the streams are disabled or the store can't be queried, e.g. during a rebalance, and the
+ * callers fall back to the other sources. The instances query each other with the shared query token, so their queries
+ * are not rate limited.
+ */
+@Component
+public class RoomOccupancyStore {
+
+    public static final String QUERY_TOKEN_HEADER = "X-Occupancy-Token";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomOccupancyStore.class);
+
+    private final ObjectProvider<InteractiveQueryService> queryService;
+    private final WebClient webClient;
+    private final BookingMetrics metrics;
+    private final boolean enabled;
+    private final Duration timeout;
+    private final String queryToken;
+
+    public RoomOccupancyStore(ObjectProvider<InteractiveQueryService> queryService,
+                              WebClient.Builder webClient,
+                              BookingMetrics metrics,
+                              @Value("${booking.streams.enabled:false}") boolean enabled,
+                              @Value("${booking.streams.query-timeout:PT0.5S}") Duration timeout,
+                              @Value("${booking.streams.query-token:}") String queryToken) {
+        this.queryService = queryService;
+        this.webClient = webClient.build();
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.queryToken = queryToken;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<Boolean> isAvailable(Long roomNumber, LocalDate startDate, LocalDate endDate, String excludedId) {
+        InteractiveQueryService queries = enabled ? queryService.getIfAvailable() : null;
+        if (Objects.isNull(queries)) {
+            return Mono.empty();
+        }
+        return metrics.timed(BookingMetrics.OCCUPANCY_QUERY,
+                        Mono.fromCallable(() -> queries.getHostInfo(BookingOccupancyProcessor.STORE,
+                                        String.valueOf(roomNumber), Serdes.String().serializer()))
+                                .flatMap(owner -> owner.equals(queries.getCurrentHostInfo())
+                                        ? isAvailableLocally(roomNumber, startDate, endDate, excludedId)
+                                        : isAvailableRemotely(owner, roomNumber, startDate, endDate, excludedId))
+                                .timeout(timeout))
+                .onErrorResume(error -> {
+                    LOGGER.warn("Room occupancy store not queryable for room {}: {}", roomNumber, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Only answers for the rooms of the partitions owned by this instance, so the remote queries are never routed
+     * again.
+     */
+    public Mono<Boolean> isAvailableLocally(Long roomNumber, LocalDate startDate, LocalDate endDate, String excludedId) {
+        InteractiveQueryService queries = enabled ? queryService.getIfAvailable() : null;
+        if (Objects.isNull(queries)) {
+            return Mono.empty();
+        }
+        //The store lookup retries while the store is migrating, it must not run on the event loop.
+        return Mono.fromCallable(() -> {
+                    ReadOnlyKeyValueStore<String, RoomStays> store = queries.getQueryableStore(
+                            BookingOccupancyProcessor.STORE, QueryableStoreTypes.keyValueStore());
+                    RoomStays stays = store.get(String.valueOf(roomNumber));
+                    //A room not seeded yet by the processor is unknown to the store.
+                    return Objects.isNull(stays) ? null : stays.isFree(startDate, endDate, excludedId);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Boolean> isAvailableRemotely(HostInfo owner, Long roomNumber, LocalDate startDate, LocalDate endDate,
+                                              String excludedId) {
+        return webClient.get()
+                .uri(uri -> uri.scheme("http")
+                        .host(owner.host())
+                        .port(owner.port())
+                        .path("/booking/room/{roomNumber}/occupancy")
+                        .queryParam("startDate", startDate)
+                        .queryParam("endDate", endDate)
+                        .queryParamIfPresent("excludedId", Optional.ofNullable(excludedId))
+                        .build(roomNumber))
+                .header(QUERY_TOKEN_HEADER, queryToken)
+                .retrieve()
+                .bodyToMono(Boolean.class);
+    }
+}
@@ -0,0 +1,16 @@
+package com.alten.booking.infrastructure.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+ * Where the rate limit buckets of the users live. The returned buckets may block on a remote store, so they must not
+ * be called from a non blocking thread.
+ */
+public interface BucketStore {
+
+    Bucket resolve(String key, Supplier<BucketConfiguration> configSupplier);
+
+}
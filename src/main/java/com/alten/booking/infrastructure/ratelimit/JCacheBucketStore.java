@@ -0,0 +1,31 @@
+package com.alten.booking.infrastructure.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.grid.jcache.JCacheProxyManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import java.util.function.Supplier;
+
+/**
+ * Buckets shared by all the instances through the redis backed JCache. bucket4j has no async mode for JCache, every
+ * call on these buckets is a blocking round trip to redis.
+ */
+@Component
+@Profile("!local")
+public class JCacheBucketStore implements BucketStore {
+
+    private final ProxyManager<String> buckets;
+
+    public JCacheBucketStore(Cache<String, byte[]> cache) {
+        buckets = new JCacheProxyManager<>(cache);
+    }
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configSupplier) {
+        return buckets.builder().build(key, configSupplier);
+    }
+}
@@ -0,0 +1,33 @@
+package com.alten.booking.infrastructure.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Buckets of a single instance, kept in memory: the same limits as the redis buckets, without any round trip.
+ */
+@Component
+@Profile("local")
+public class LocalBucketStore implements BucketStore {
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configSupplier) {
+        return buckets.computeIfAbsent(key, it -> {
+            LocalBucketBuilder builder = Bucket.builder();
+            for (Bandwidth bandwidth : configSupplier.get().getBandwidths()) {
+                builder.addLimit(bandwidth);
+            }
+            return builder.build();
+        });
+    }
+}
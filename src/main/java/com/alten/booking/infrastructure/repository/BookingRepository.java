@@ -3,30 +3,26 @@ package com.alten.booking.infrastructure.repository;
 import com.alten.booking.infrastructure.repository.entity.Booking;
 import com.alten.booking.infrastructure.repository.entity.BookingStatus;
 import org.springframework.data.mongodb.repository.Query;
-import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 
 @Repository
-public interface BookingRepository extends ReactiveMongoRepository<Booking, String> {
+public interface BookingRepository extends ReactiveCrudRepository<Booking, String>, BookingRepositoryCustom {
 
     Flux<Booking> findAllByUsername(String username);
     Flux<Booking> findAllByRoomNumberAndStatus(Long roomNumber, BookingStatus status);
+    Flux<Booking> findAllByStatusAndEndDateGreaterThanEqual(BookingStatus status, LocalDate endDate);
 
-    @Query(value = "{$and: [" +
-            "        {roomNumber: ?0}," +
-            "        {$or: [" +
-            "            {startDate: {$gte: ?1, $lte: ?2}}," +
-            "            {endDate: {$gte: ?1, $lte: ?2}}," +
-            "            {$and: [" +
-            "              {startDate: {$lt: ?1}}," +
-            "              {endDate: {$gt: ?2}}" +
-            "            ]}" +
-            "        ]}," +
-            "        {_id: {$ne: ?3}}," +
-            "        {status: 'BOOKED'}" +
-            "    ]}")
+    //Canonical overlap test, served by the booking_conflict index: equality on roomNumber and status, range on dates.
+    String DATES_CONFLICT = "{roomNumber: ?0, status: 'BOOKED', startDate: {$lte: ?2}, endDate: {$gte: ?1}, _id: {$ne: ?3}}";
+
+    @Query(DATES_CONFLICT)
     Flux<Booking> findAllByRoomNumberAndDatesConflict(Long room, LocalDate start, LocalDate end, String id);
-}
\ No newline at end of file
+
+    @Query(value = DATES_CONFLICT, exists = true)
+    Mono<Boolean> existsByRoomNumberAndDatesConflict(Long room, LocalDate start, LocalDate end, String id);
+}
@@ -0,0 +1,22 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BookingRepositoryCustom {
+
+    Flux<Booking> bulkSave(List<Booking> bookings);
+
+    Mono<Booking> findFirstConflicting(List<Booking> stays);
+
+    Flux<Booking> findPageByUsername(String username, LocalDate afterStartDate, String afterId, int limit);
+
+    Flux<Booking> findPageByRoomNumberAndStatus(Long roomNumber, BookingStatus status, LocalDate afterStartDate,
+                                                String afterId, int limit);
+
+}
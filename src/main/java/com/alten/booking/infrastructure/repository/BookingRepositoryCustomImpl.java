@@ -0,0 +1,109 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import lombok.AllArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@AllArgsConstructor
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Upserts all the bookings with a single unordered bulk write. The bulk write skips the auditing callbacks, so the
+     * ids and the audit dates are filled here. A booking listed several times, e.g. created then cancelled in the same
+     * poll, is written once with its last state, as the writes of an unordered bulk write may be applied in any order.
+     */
+    @Override
+    public Flux<Booking> bulkSave(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return Flux.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, WriteModel<Document>> writes = new LinkedHashMap<>();
+        bookings.forEach(booking -> {
+            if (Objects.isNull(booking.getId())) {
+                booking.setId(new ObjectId().toHexString());
+            }
+            if (Objects.isNull(booking.getCreatedDate())) {
+                booking.setCreatedDate(now);
+            }
+            booking.setUpdatedDate(now);
+            Document document = new Document();
+            mongoTemplate.getConverter().write(booking, document);
+            writes.put(booking.getId(), new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document,
+                    new ReplaceOptions().upsert(true)));
+        });
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Booking.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(new ArrayList<>(writes.values()),
+                        new BulkWriteOptions().ordered(false))))
+                .thenMany(Flux.fromIterable(bookings));
+    }
+
+    /**
+     * A booked stay overlapping any of the stays, the overlap test of {@link BookingRepository#DATES_CONFLICT} for every
+     * stay in a single query: each branch of the $or is served by the booking_conflict index.
+     */
+    @Override
+    public Mono<Booking> findFirstConflicting(List<Booking> stays) {
+        if (stays.isEmpty()) {
+            return Mono.empty();
+        }
+        Criteria[] conflicts = stays.stream()
+                .map(stay -> Criteria.where("roomNumber").is(stay.getRoomNumber())
+                        .and("status").is(BookingStatus.BOOKED)
+                        .and("startDate").lte(stay.getEndDate())
+                        .and("endDate").gte(stay.getStartDate()))
+                .toArray(Criteria[]::new);
+        return mongoTemplate.findOne(Query.query(new Criteria().orOperator(conflicts)), Booking.class);
+    }
+
+    @Override
+    public Flux<Booking> findPageByUsername(String username, LocalDate afterStartDate, String afterId, int limit) {
+        return findPage(Criteria.where("username").is(username), afterStartDate, afterId, limit);
+    }
+
+    @Override
+    public Flux<Booking> findPageByRoomNumberAndStatus(Long roomNumber, BookingStatus status, LocalDate afterStartDate,
+                                                       String afterId, int limit) {
+        return findPage(Criteria.where("roomNumber").is(roomNumber).and("status").is(status),
+                afterStartDate, afterId, limit);
+    }
+
+    /**
+     * Keyset page: the bookings after (afterStartDate, afterId) in (startDate, id) order, so a page costs the same
+     * whatever its position in the list, unlike a skip.
+     */
+    private Flux<Booking> findPage(Criteria filter, LocalDate afterStartDate, String afterId, int limit) {
+        if (Objects.nonNull(afterStartDate)) {
+            filter.orOperator(
+                    Criteria.where("startDate").gt(afterStartDate),
+                    Criteria.where("startDate").is(afterStartDate).and("id").gt(afterId));
+        }
+        Query query = Query.query(filter)
+                .with(Sort.by("startDate", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Booking.class);
+    }
+}
@@ -0,0 +1,23 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.RoomNight;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+@Repository
+public interface RoomNightRepository extends ReactiveCrudRepository<RoomNight, String>, RoomNightRepositoryCustom {
+
+    //Served by the mongo repository base class, fails the whole batch on a night already reserved.
+    <S extends RoomNight> Flux<S> insert(Iterable<S> nights);
+
+    Flux<RoomNight> findAllByBookingId(String bookingId);
+    Mono<Long> deleteByBookingId(String bookingId);
+    Mono<Long> deleteByBookingIdIn(Collection<String> bookingIds);
+    Mono<Long> deleteByBookingIdAndRoomNumberAndNightIn(String bookingId, Long roomNumber, Collection<LocalDate> nights);
+
+}
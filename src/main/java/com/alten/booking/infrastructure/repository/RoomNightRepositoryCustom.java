@@ -0,0 +1,12 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.RoomNight;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface RoomNightRepositoryCustom {
+
+    Mono<Long> insertMissing(List<RoomNight> nights);
+
+}
@@ -0,0 +1,48 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.RoomNight;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import lombok.AllArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor
+public class RoomNightRepositoryCustomImpl implements RoomNightRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Inserts the nights with a single unordered bulk write, so a night already reserved doesn't stop the others. Only
+     * the duplicate keys are ignored, any other write error fails.
+     *
+     * @return the number of nights inserted.
+     */
+    @Override
+    public Mono<Long> insertMissing(List<RoomNight> nights) {
+        if (nights.isEmpty()) {
+            return Mono.just(0L);
+        }
+        List<WriteModel<Document>> writes = nights.stream()
+                .map(night -> {
+                    Document document = new Document();
+                    mongoTemplate.getConverter().write(night, document);
+                    return new InsertOneModel<>(document);
+                })
+                .collect(Collectors.toList());
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(RoomNight.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> (long) result.getInsertedCount())
+                .onErrorResume(MongoBulkWriteException.class, error -> error.getWriteErrors().stream()
+                        .allMatch(it -> ErrorCategory.fromErrorCode(it.getCode()) == ErrorCategory.DUPLICATE_KEY)
+                        ? Mono.just((long) error.getWriteResult().getInsertedCount())
+                        : Mono.error(error));
+    }
+}
@@ -1,14 +1,18 @@
 package com.alten.booking.infrastructure.repository;
 
 import com.alten.booking.infrastructure.repository.entity.Room;
-import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
-public interface RoomRepository extends ReactiveMongoRepository<Room, String> {
+public interface RoomRepository extends ReactiveCrudRepository<Room, String>, RoomRepositoryCustom {
 
     Mono<Room> findByRoomNumber(Long roomNumber);
     Mono<Boolean> existsByRoomNumber(Long roomNumber);
+    Flux<Room> findAllByRoomNumberIn(Collection<Long> roomNumbers);
 
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.Room;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RoomRepositoryCustom {
+
+    Flux<Room> findAllAvailable(LocalDate startDate, LocalDate endDate, Long guests, Long beds);
+
+    Flux<RoomUpsert> bulkUpsert(List<Room> rooms);
+
+}
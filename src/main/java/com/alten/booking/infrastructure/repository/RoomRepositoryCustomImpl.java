@@ -0,0 +1,121 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.Room;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import lombok.AllArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+
+@AllArgsConstructor
+public class RoomRepositoryCustomImpl implements RoomRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Rooms matching the capacity filters anti joined with the bookings overlapping the given dates, the whole search
+     * is a single aggregation whatever the number of rooms.
+     */
+    @Override
+    public Flux<Room> findAllAvailable(LocalDate startDate, LocalDate endDate, Long guests, Long beds) {
+        Document capacity = new Document();
+        if (Objects.nonNull(guests)) {
+            capacity.append("guests", new Document("$gte", guests));
+        }
+        if (Objects.nonNull(beds)) {
+            capacity.append("beds", new Document("$gte", beds));
+        }
+        Document conflicts = new Document("from", "booking")
+                .append("let", new Document("roomNumber", "$roomNumber"))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$eq", List.of("$roomNumber", "$$roomNumber")))
+                                .append("status", BOOKED.name())
+                                .append("startDate", new Document("$lte", toMongoType(endDate)))
+                                .append("endDate", new Document("$gte", toMongoType(startDate)))),
+                        new Document("$limit", 1),
+                        new Document("$project", new Document("_id", 1))))
+                .append("as", "conflicts");
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                stage("$match", capacity),
+                stage("$lookup", conflicts),
+                stage("$match", new Document("conflicts", new Document("$size", 0))),
+                stage("$project", new Document("conflicts", 0)));
+        return mongoTemplate.aggregate(aggregation, Room.class, Room.class);
+    }
+
+    /**
+     * Upserts all the rooms by room number with a single unordered bulk write, so a room that fails, e.g. on the unique
+     * room number when the same room is imported twice at once, doesn't stop the others. The result of each room is
+     * returned in the order of the rooms. The bulk write skips the auditing callbacks, so the audit dates are set here.
+     */
+    @Override
+    public Flux<RoomUpsert> bulkUpsert(List<Room> rooms) {
+        if (rooms.isEmpty()) {
+            return Flux.empty();
+        }
+        Object now = mongoTemplate.getConverter().convertToMongoType(LocalDateTime.now());
+        List<WriteModel<Document>> writes = rooms.stream()
+                .map(room -> {
+                    Document fields = new Document();
+                    mongoTemplate.getConverter().write(room, fields);
+                    fields.remove("_id");
+                    fields.remove("createdDate");
+                    fields.put("updatedDate", now);
+                    return new UpdateOneModel<Document>(Filters.eq("roomNumber", room.getRoomNumber()),
+                            new Document("$set", fields).append("$setOnInsert", new Document("createdDate", now)),
+                            new UpdateOptions().upsert(true));
+                })
+                .collect(Collectors.toList());
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Room.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> upserts(rooms, result, List.of()))
+                .onErrorResume(MongoBulkWriteException.class,
+                        error -> Mono.just(upserts(rooms, error.getWriteResult(), error.getWriteErrors())))
+                .flatMapIterable(Function.identity());
+    }
+
+    private static List<RoomUpsert> upserts(List<Room> rooms, BulkWriteResult result, List<BulkWriteError> errors) {
+        Set<Integer> created = result.getUpserts().stream()
+                .map(BulkWriteUpsert::getIndex)
+                .collect(Collectors.toSet());
+        Map<Integer, String> failed = errors.stream()
+                .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+        return IntStream.range(0, rooms.size())
+                .mapToObj(index -> new RoomUpsert(rooms.get(index).getRoomNumber(), created.contains(index),
+                        failed.get(index)))
+                .collect(Collectors.toList());
+    }
+
+    //Same conversion used by the repositories, so the dates match the stored ones.
+    private Object toMongoType(LocalDate date) {
+        return mongoTemplate.getConverter().convertToMongoType(date);
+    }
+
+    private static AggregationOperation stage(String operator, Document body) {
+        return context -> new Document(operator, body);
+    }
+}
@@ -0,0 +1,22 @@
+package com.alten.booking.infrastructure.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Objects;
+
+/**
+ * The outcome of the upsert of one room in a bulk write, the error of the room when it was not written.
+ */
+@Data
+@AllArgsConstructor
+public class RoomUpsert {
+
+    private Long roomNumber;
+    private boolean created;
+    private String error;
+
+    public boolean isFailed() {
+        return Objects.nonNull(error);
+    }
+}
@@ -0,0 +1,11 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserBookingsRepository extends ReactiveCrudRepository<UserBookings, String>,
+        UserBookingsRepositoryCustom {
+
+}
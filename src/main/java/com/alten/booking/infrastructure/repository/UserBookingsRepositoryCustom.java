@@ -0,0 +1,12 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+public interface UserBookingsRepositoryCustom {
+
+    Mono<Void> putBooking(String username, UserBookings.Item item, LocalDate today);
+
+}
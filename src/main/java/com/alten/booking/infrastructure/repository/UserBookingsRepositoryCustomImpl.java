@@ -0,0 +1,52 @@
+package com.alten.booking.infrastructure.repository;
+
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import lombok.AllArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@AllArgsConstructor
+public class UserBookingsRepositoryCustomImpl implements UserBookingsRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Replaces the booking in the list of the user with a single update pipeline: the list is filtered and the booking
+     * appended in one atomic write of the document, so concurrent updates of the same user never lose one another. The
+     * list is left as it is when it holds a newer version of the booking, and the stays ended before today are dropped
+     * on the way.
+     */
+    @Override
+    public Mono<Void> putBooking(String username, UserBookings.Item item, LocalDate today) {
+        Document current = new Document("$ifNull", List.of("$bookings", List.of()));
+        Document newer = new Document("$gt", List.of(new Document("$size", new Document("$filter",
+                new Document("input", current)
+                        .append("cond", new Document("$and", List.of(
+                                new Document("$eq", List.of("$$this.bookingId", item.getBookingId())),
+                                new Document("$gt", List.of("$$this.updatedDate",
+                                        toMongoType(item.getUpdatedDate())))))))), 0));
+        Document kept = new Document("$filter", new Document("input", current)
+                .append("cond", new Document("$and", List.of(
+                        new Document("$ne", List.of("$$this.bookingId", item.getBookingId())),
+                        new Document("$gte", List.of("$$this.endDate", toMongoType(today)))))));
+        Document set = new Document("$set", new Document("bookings", new Document("$cond", List.of(newer, current,
+                new Document("$concatArrays", List.of(kept, new Document("$literal", List.of(toMongoType(item))))))))
+                .append("updatedDate", toMongoType(LocalDateTime.now())));
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(UserBookings.class))
+                .flatMap(collection -> Mono.from(collection.updateOne(Filters.eq("_id", username), List.of(set),
+                        new UpdateOptions().upsert(true))))
+                .then();
+    }
+
+    //Same conversion used by the repositories, so the dates match the stored ones.
+    private Object toMongoType(Object value) {
+        return mongoTemplate.getConverter().convertToMongoType(value);
+    }
+}
@@ -11,11 +11,15 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Data
 @NoArgsConstructor
@@ -24,21 +28,25 @@ import java.time.LocalDateTime;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Accessors(chain = true)
 @Document(collection = "booking")
+@CompoundIndexes({
+        @CompoundIndex(name = "booking_conflict", def = "{'roomNumber': 1, 'status': 1, 'startDate': 1, 'endDate': 1}"),
+        @CompoundIndex(name = "booking_user_page", def = "{'username': 1, 'startDate': 1, '_id': 1}")
+})
 public class Booking {
 
     @Id
     @Indexed
     private String id;
 
-    @Indexed
     private Long roomNumber;
 
-    @Indexed
     private String username;
 
+    //Set on the bookings of a group, confirmed all together or not at all, see BookingGroup.
+    private String groupId;
+
     private BookingStatus status;
 
-    @Indexed
     private LocalDate startDate;
 
     @Indexed
@@ -50,6 +58,16 @@ public class Booking {
     @LastModifiedDate
     private LocalDateTime updatedDate;
 
+    //The stay before an update, carried by its event so the nights it frees can be announced, never persisted.
+    @Transient
+    private Long previousRoomNumber;
+
+    @Transient
+    private LocalDate previousStartDate;
+
+    @Transient
+    private LocalDate previousEndDate;
+
     @Override
     public String toString() {
         return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
@@ -70,4 +88,14 @@ public class Booking {
     public Booking overbooked() {
         return this.setStatus(BookingStatus.OVERBOOKED);
     }
+
+    public Booking keepPreviousStay() {
+        return this.setPreviousRoomNumber(roomNumber)
+                .setPreviousStartDate(startDate)
+                .setPreviousEndDate(endDate);
+    }
+
+    public boolean movesRoom() {
+        return Objects.nonNull(previousRoomNumber) && !Objects.equals(previousRoomNumber, roomNumber);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.alten.booking.infrastructure.repository.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.List;
+
+/**
+ * The event of a group booking: several rooms, or stays, booked by a user at once. It is not stored as such, its
+ * bookings are confirmed all together or none of them, and are stored one by one with the id of the group.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingGroup {
+
+    private String id;
+
+    private String username;
+
+    private List<Booking> bookings;
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+    }
+}
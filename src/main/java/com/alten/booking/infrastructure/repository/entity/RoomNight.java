@@ -0,0 +1,44 @@
+package com.alten.booking.infrastructure.repository.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+/**
+ * A night of a room reserved by a booking, the unique index makes two bookings of the same night impossible whatever
+ * the instance confirming them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Document(collection = "room_night")
+@CompoundIndex(name = "room_night_unique", def = "{'roomNumber': 1, 'night': 1}", unique = true)
+public class RoomNight {
+
+    @Id
+    private String id;
+
+    private Long roomNumber;
+
+    private LocalDate night;
+
+    @Indexed
+    private String bookingId;
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+    }
+}
@@ -0,0 +1,69 @@
+package com.alten.booking.infrastructure.repository.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read model of the bookings of a user, kept by the consumer as it persists the bookings: the latest version of its
+ * stays not ended yet, embedded in a single document whose id is the username, so they are read with a primary key
+ * lookup instead of a query over the booking collection. A booking no longer BOOKED is kept with its status until its
+ * stay ends, so an older version of it never brings it back.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Document(collection = "user_bookings")
+public class UserBookings {
+
+    //Id of the document recording that the read model was rebuilt from the bookings once.
+    public static final String REBUILT_MARKER = "#rebuilt";
+
+    @Id
+    private String username;
+
+    private List<Item> bookings;
+
+    private LocalDateTime updatedDate;
+
+    //Named bookingId and not id, an id field of an embedded document would be mapped to _id.
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder(toBuilder = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+
+        private String bookingId;
+
+        private Long roomNumber;
+
+        private String groupId;
+
+        private BookingStatus status;
+
+        private LocalDate startDate;
+
+        private LocalDate endDate;
+
+        //Version of the booking, the updatedDate it was persisted with.
+        private LocalDateTime updatedDate;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+    }
+}
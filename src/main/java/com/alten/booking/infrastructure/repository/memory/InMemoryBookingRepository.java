@@ -0,0 +1,248 @@
+package com.alten.booking.infrastructure.repository.memory;
+
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.alten.booking.infrastructure.repository.entity.BookingStatus.BOOKED;
+
+/**
+ * The bookings with the indexes of the mongo collection: by user, by room, and the stays of the BOOKED bookings of each
+ * room in start date order, so a conflict query reads the few stays that may overlap the dates, like the
+ * booking_conflict index, and not the whole collection.
+ */
+@Repository
+@Profile("local")
+public class InMemoryBookingRepository extends InMemoryRepository<Booking> implements BookingRepository {
+
+    private static final Comparator<Booking> PAGE_ORDER = Comparator.comparing(Booking::getStartDate)
+            .thenComparing(Booking::getId);
+
+    private final Map<String, Set<String>> byUsername = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> byRoomNumber = new ConcurrentHashMap<>();
+    private final Map<Long, StayIndex> bookedStays = new ConcurrentHashMap<>();
+
+    @Override
+    public Flux<Booking> findAllByUsername(String username) {
+        return find(idsOf(byUsername, username), booking -> Objects.equals(username, booking.getUsername()));
+    }
+
+    @Override
+    public Flux<Booking> findAllByRoomNumberAndStatus(Long roomNumber, BookingStatus status) {
+        return find(idsOf(byRoomNumber, roomNumber), inRoomWithStatus(roomNumber, status));
+    }
+
+    @Override
+    public Flux<Booking> findAllByStatusAndEndDateGreaterThanEqual(BookingStatus status, LocalDate endDate) {
+        return find(booking -> status == booking.getStatus() && !booking.getEndDate().isBefore(endDate));
+    }
+
+    @Override
+    public Flux<Booking> findAllByRoomNumberAndDatesConflict(Long room, LocalDate start, LocalDate end, String id) {
+        return find(overlappingIds(room, start, end), conflicting(room, start, end, id));
+    }
+
+    @Override
+    public Mono<Boolean> existsByRoomNumberAndDatesConflict(Long room, LocalDate start, LocalDate end, String id) {
+        return Mono.fromSupplier(() -> overlappingIds(room, start, end).stream()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .anyMatch(conflicting(room, start, end, id)));
+    }
+
+    @Override
+    public Mono<Booking> findFirstConflicting(List<Booking> stays) {
+        return Flux.fromIterable(stays)
+                .concatMap(stay -> findAllByRoomNumberAndDatesConflict(stay.getRoomNumber(), stay.getStartDate(),
+                        stay.getEndDate(), null))
+                .next();
+    }
+
+    @Override
+    public Flux<Booking> bulkSave(List<Booking> bookings) {
+        return Flux.defer(() -> Flux.fromIterable(store(bookings, false)));
+    }
+
+    @Override
+    public Flux<Booking> findPageByUsername(String username, LocalDate afterStartDate, String afterId, int limit) {
+        return findPage(idsOf(byUsername, username), booking -> Objects.equals(username, booking.getUsername()),
+                afterStartDate, afterId, limit);
+    }
+
+    @Override
+    public Flux<Booking> findPageByRoomNumberAndStatus(Long roomNumber, BookingStatus status, LocalDate afterStartDate,
+                                                       String afterId, int limit) {
+        return findPage(idsOf(byRoomNumber, roomNumber), inRoomWithStatus(roomNumber, status),
+                afterStartDate, afterId, limit);
+    }
+
+    //Same keyset order as the mongo repository, (startDate, id).
+    private Flux<Booking> findPage(Collection<String> ids, Predicate<Booking> filter, LocalDate afterStartDate,
+                                   String afterId, int limit) {
+        Predicate<Booking> after = Objects.isNull(afterStartDate)
+                ? booking -> true
+                : booking -> booking.getStartDate().isAfter(afterStartDate)
+                || (booking.getStartDate().isEqual(afterStartDate) && booking.getId().compareTo(afterId) > 0);
+        return find(ids, filter.and(after))
+                .sort(PAGE_ORDER)
+                .take(limit);
+    }
+
+    private Collection<String> overlappingIds(Long room, LocalDate start, LocalDate end) {
+        StayIndex stays = bookedStays.get(room);
+        return Objects.isNull(stays) ? Set.of() : stays.overlapping(start, end);
+    }
+
+    private static Predicate<Booking> conflicting(Long room, LocalDate start, LocalDate end, String id) {
+        return booking -> Objects.equals(room, booking.getRoomNumber())
+                && BOOKED == booking.getStatus()
+                && !booking.getStartDate().isAfter(end)
+                && !booking.getEndDate().isBefore(start)
+                && !Objects.equals(id, booking.getId());
+    }
+
+    private static Predicate<Booking> inRoomWithStatus(Long roomNumber, BookingStatus status) {
+        return booking -> Objects.equals(roomNumber, booking.getRoomNumber()) && status == booking.getStatus();
+    }
+
+    private static <K> Collection<String> idsOf(Map<K, Set<String>> index, K key) {
+        return Objects.isNull(key) ? Set.of() : index.getOrDefault(key, Set.of());
+    }
+
+    @Override
+    protected void onStored(Booking previous, Booking stored) {
+        if (Objects.nonNull(previous)) {
+            onRemoved(previous);
+        }
+        if (Objects.nonNull(stored.getUsername())) {
+            byUsername.computeIfAbsent(stored.getUsername(), it -> ConcurrentHashMap.newKeySet()).add(stored.getId());
+        }
+        if (Objects.nonNull(stored.getRoomNumber())) {
+            byRoomNumber.computeIfAbsent(stored.getRoomNumber(), it -> ConcurrentHashMap.newKeySet())
+                    .add(stored.getId());
+            if (BOOKED == stored.getStatus()) {
+                bookedStays.computeIfAbsent(stored.getRoomNumber(), it -> new StayIndex()).add(stored);
+            }
+        }
+    }
+
+    @Override
+    protected void onRemoved(Booking removed) {
+        unindex(byUsername, removed.getUsername(), removed.getId());
+        unindex(byRoomNumber, removed.getRoomNumber(), removed.getId());
+        if (Objects.nonNull(removed.getRoomNumber())) {
+            StayIndex stays = bookedStays.get(removed.getRoomNumber());
+            if (Objects.nonNull(stays) && BOOKED == removed.getStatus()) {
+                stays.remove(removed);
+            }
+        }
+    }
+
+    private static <K> void unindex(Map<K, Set<String>> index, K key, String id) {
+        Set<String> ids = Objects.isNull(key) ? null : index.get(key);
+        if (Objects.nonNull(ids)) {
+            ids.remove(id);
+        }
+    }
+
+    @Override
+    protected String idOf(Booking booking) {
+        return booking.getId();
+    }
+
+    @Override
+    protected void assignId(Booking booking, String id) {
+        booking.setId(id);
+    }
+
+    @Override
+    protected void beforeStore(Booking booking) {
+        LocalDateTime now = LocalDateTime.now();
+        if (Objects.isNull(booking.getCreatedDate())) {
+            booking.setCreatedDate(now);
+        }
+        booking.setUpdatedDate(now);
+    }
+
+    @Override
+    protected Booking copyOf(Booking booking) {
+        return Booking.builder()
+                .id(booking.getId())
+                .roomNumber(booking.getRoomNumber())
+                .username(booking.getUsername())
+                .groupId(booking.getGroupId())
+                .status(booking.getStatus())
+                .startDate(booking.getStartDate())
+                .endDate(booking.getEndDate())
+                .createdDate(booking.getCreatedDate())
+                .updatedDate(booking.getUpdatedDate())
+                .build();
+    }
+
+    /**
+     * The BOOKED stays of a room ordered by (startDate, bookingId). No stay is longer than the longest one indexed, so
+     * the stays overlapping [start, end] all start between start minus that length and end: a range of the set.
+     */
+    private static class StayIndex {
+
+        private static final Comparator<Stay> ORDER = Comparator.comparing(Stay::getStartDate)
+                .thenComparing(Stay::getBookingId);
+        //Sort before and after any hexadecimal id.
+        private static final String FIRST_ID = "";
+        private static final String LAST_ID = "\uffff";
+
+        private final ConcurrentSkipListSet<Stay> stays = new ConcurrentSkipListSet<>(ORDER);
+        private volatile long longestStayDays;
+
+        void add(Booking booking) {
+            longestStayDays = Math.max(longestStayDays,
+                    ChronoUnit.DAYS.between(booking.getStartDate(), booking.getEndDate()));
+            stays.add(new Stay(booking.getId(), booking.getStartDate(), booking.getEndDate()));
+        }
+
+        void remove(Booking booking) {
+            stays.remove(new Stay(booking.getId(), booking.getStartDate(), booking.getEndDate()));
+        }
+
+        Collection<String> overlapping(LocalDate start, LocalDate end) {
+            if (end.isBefore(start)) {
+                return Set.of();
+            }
+            return stays.subSet(new Stay(FIRST_ID, start.minusDays(longestStayDays), null), true,
+                            new Stay(LAST_ID, end, null), true)
+                    .stream()
+                    .filter(stay -> !stay.getEndDate().isBefore(start))
+                    .map(Stay::getBookingId)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Stay {
+
+        private final String bookingId;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+    }
+}
@@ -0,0 +1,214 @@
+package com.alten.booking.infrastructure.repository.memory;
+
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * A mongo collection kept in a map, for the local profile. The documents are copied in and out like they are by the
+ * driver, so a caller never shares an instance with the store. The writes, and the indexes the subclasses maintain in
+ * {@link #onStored} and {@link #onRemoved}, are serialized. The reads are not, so they check the documents they find
+ * through an index again. Only the crud methods the service uses are kept, plus the batch insert of the nights.
+ */
+public abstract class InMemoryRepository<T> implements ReactiveCrudRepository<T, String> {
+
+    protected final Map<String, T> documents = new ConcurrentHashMap<>();
+
+    protected abstract String idOf(T document);
+
+    protected abstract void assignId(T document, String id);
+
+    protected abstract T copyOf(T document);
+
+    //Fills the audit dates, the way the mongo auditing does.
+    protected void beforeStore(T document) {
+    }
+
+    //Throws a DuplicateKeyException when the document breaks a unique index of the collection.
+    protected void checkUniqueKeys(T document) {
+    }
+
+    protected void onStored(T previous, T stored) {
+    }
+
+    protected void onRemoved(T removed) {
+    }
+
+    /**
+     * Stores all the documents or none of them, a duplicate key fails the whole batch.
+     *
+     * @param insert fails on a document already stored, instead of replacing it.
+     */
+    protected synchronized <S extends T> List<S> store(List<S> entities, boolean insert) {
+        for (S entity : entities) {
+            if (Objects.isNull(idOf(entity))) {
+                assignId(entity, new ObjectId().toHexString());
+            }
+            if (insert && documents.containsKey(idOf(entity))) {
+                throw new DuplicateKeyException("Duplicate key _id: " + idOf(entity));
+            }
+            checkUniqueKeys(entity);
+        }
+        for (S entity : entities) {
+            beforeStore(entity);
+            T stored = copyOf(entity);
+            onStored(documents.put(idOf(stored), stored), stored);
+        }
+        return entities;
+    }
+
+    protected long removeIf(Predicate<T> filter) {
+        return removeIf(documents.keySet(), filter);
+    }
+
+    //The ids usually come from an index of the subclass, the filter is applied again as the index may be behind.
+    protected synchronized long removeIf(Collection<String> ids, Predicate<T> filter) {
+        List<T> removed = ids.stream()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .filter(filter)
+                .collect(Collectors.toList());
+        removed.forEach(this::removeDocument);
+        return removed.size();
+    }
+
+    protected Flux<T> find(Predicate<T> filter) {
+        return find(documents.keySet(), filter);
+    }
+
+    protected Flux<T> find(Collection<String> ids, Predicate<T> filter) {
+        return Flux.defer(() -> Flux.fromIterable(ids.stream()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .filter(filter)
+                .map(this::copyOf)
+                .collect(Collectors.toList())));
+    }
+
+    private synchronized void remove(String id) {
+        T removed = documents.remove(id);
+        if (Objects.nonNull(removed)) {
+            onRemoved(removed);
+        }
+    }
+
+    private void removeDocument(T document) {
+        remove(idOf(document));
+    }
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return Mono.fromCallable(() -> store(List.of(entity), false).get(0));
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    //Fails the whole batch on a document already stored, like the ordered insert of the driver.
+    public <S extends T> Flux<S> insert(Iterable<S> entities) {
+        return Flux.defer(() -> Flux.fromIterable(store(toList(entities), true)));
+    }
+
+    @Override
+    public Mono<T> findById(String id) {
+        return Mono.fromSupplier(() -> {
+            T document = documents.get(id);
+            return Objects.isNull(document) ? null : copyOf(document);
+        });
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return Mono.fromSupplier(() -> documents.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return find(document -> true);
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<String> idStream) {
+        return Flux.from(idStream).concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) documents.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return Mono.fromRunnable(() -> remove(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return Mono.fromRunnable(() -> removeDocument(entity));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+        return Mono.fromRunnable(() -> ids.forEach(this::remove));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return Mono.fromRunnable(() -> entities.forEach(this::removeDocument));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+        return Flux.from(entityStream)
+                .concatMap(this::delete)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(() -> removeIf(document -> true));
+    }
+
+    private static <S> List<S> toList(Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,134 @@
+package com.alten.booking.infrastructure.repository.memory;
+
+import com.alten.booking.infrastructure.repository.RoomNightRepository;
+import com.alten.booking.infrastructure.repository.entity.RoomNight;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The room nights with their unique (roomNumber, night) index, an insert of a night already reserved by another booking
+ * fails with a DuplicateKeyException, as it does in mongo.
+ */
+@Repository
+@Profile("local")
+public class InMemoryRoomNightRepository extends InMemoryRepository<RoomNight> implements RoomNightRepository {
+
+    //The unique (roomNumber, night) index, to the id of the night.
+    private final Map<String, String> byNight = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byBookingId = new ConcurrentHashMap<>();
+
+    @Override
+    public Flux<RoomNight> findAllByBookingId(String bookingId) {
+        return find(idsOf(bookingId), night -> Objects.equals(bookingId, night.getBookingId()));
+    }
+
+    @Override
+    public Mono<Long> deleteByBookingId(String bookingId) {
+        return Mono.fromCallable(() -> removeIf(idsOf(bookingId),
+                night -> Objects.equals(bookingId, night.getBookingId())));
+    }
+
+    @Override
+    public Mono<Long> deleteByBookingIdIn(Collection<String> bookingIds) {
+        return Mono.fromCallable(() -> removeIf(bookingIds.stream()
+                        .flatMap(bookingId -> idsOf(bookingId).stream())
+                        .collect(Collectors.toList()),
+                night -> bookingIds.contains(night.getBookingId())));
+    }
+
+    @Override
+    public Mono<Long> deleteByBookingIdAndRoomNumberAndNightIn(String bookingId, Long roomNumber,
+                                                               Collection<LocalDate> nights) {
+        return Mono.fromCallable(() -> removeIf(idsOf(bookingId),
+                night -> Objects.equals(bookingId, night.getBookingId())
+                        && Objects.equals(roomNumber, night.getRoomNumber())
+                        && nights.contains(night.getNight())));
+    }
+
+    //Night by night, like the unordered bulk write of mongo, so a night already reserved doesn't stop the others.
+    @Override
+    public Mono<Long> insertMissing(List<RoomNight> nights) {
+        return Mono.fromCallable(() -> nights.stream()
+                .filter(night -> {
+                    try {
+                        store(List.of(night), true);
+                        return true;
+                    } catch (DuplicateKeyException e) {
+                        return false;
+                    }
+                })
+                .count());
+    }
+
+    private Collection<String> idsOf(String bookingId) {
+        return Objects.isNull(bookingId) ? Set.of() : byBookingId.getOrDefault(bookingId, Set.of());
+    }
+
+    @Override
+    protected String idOf(RoomNight night) {
+        return night.getId();
+    }
+
+    @Override
+    protected void assignId(RoomNight night, String id) {
+        night.setId(id);
+    }
+
+    @Override
+    protected void checkUniqueKeys(RoomNight night) {
+        String owner = byNight.get(key(night));
+        if (Objects.nonNull(owner) && !owner.equals(night.getId())) {
+            throw new DuplicateKeyException("Duplicate key room_night_unique: " + key(night));
+        }
+    }
+
+    @Override
+    protected void onStored(RoomNight previous, RoomNight stored) {
+        if (Objects.nonNull(previous)) {
+            onRemoved(previous);
+        }
+        byNight.put(key(stored), stored.getId());
+        if (Objects.nonNull(stored.getBookingId())) {
+            byBookingId.computeIfAbsent(stored.getBookingId(), it -> ConcurrentHashMap.newKeySet()).add(stored.getId());
+        }
+    }
+
+    @Override
+    protected void onRemoved(RoomNight removed) {
+        byNight.remove(key(removed), removed.getId());
+        Set<String> ids = Objects.isNull(removed.getBookingId()) ? null : byBookingId.get(removed.getBookingId());
+        if (Objects.nonNull(ids)) {
+            ids.remove(removed.getId());
+            //The writes are serialized, so an entry removed here is created again by the next night of the booking.
+            if (ids.isEmpty()) {
+                byBookingId.remove(removed.getBookingId(), ids);
+            }
+        }
+    }
+
+    @Override
+    protected RoomNight copyOf(RoomNight night) {
+        return RoomNight.builder()
+                .id(night.getId())
+                .roomNumber(night.getRoomNumber())
+                .night(night.getNight())
+                .bookingId(night.getBookingId())
+                .build();
+    }
+
+    private static String key(RoomNight night) {
+        return night.getRoomNumber() + ":" + night.getNight();
+    }
+}
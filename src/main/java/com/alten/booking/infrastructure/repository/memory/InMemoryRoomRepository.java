@@ -0,0 +1,137 @@
+package com.alten.booking.infrastructure.repository.memory;
+
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.RoomUpsert;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile("local")
+public class InMemoryRoomRepository extends InMemoryRepository<Room> implements RoomRepository {
+
+    private final InMemoryBookingRepository bookingRepository;
+    //The unique roomNumber index, to the id of the room.
+    private final Map<Long, String> byRoomNumber = new ConcurrentHashMap<>();
+
+    public InMemoryRoomRepository(InMemoryBookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Override
+    public Mono<Room> findByRoomNumber(Long roomNumber) {
+        return Mono.justOrEmpty(byRoomNumber.get(roomNumber))
+                .flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsByRoomNumber(Long roomNumber) {
+        return Mono.fromSupplier(() -> byRoomNumber.containsKey(roomNumber));
+    }
+
+    @Override
+    public Flux<Room> findAllByRoomNumberIn(Collection<Long> roomNumbers) {
+        return find(roomNumbers.stream()
+                        .map(byRoomNumber::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()),
+                room -> roomNumbers.contains(room.getRoomNumber()));
+    }
+
+    @Override
+    public Flux<Room> findAllAvailable(LocalDate startDate, LocalDate endDate, Long guests, Long beds) {
+        return find(room -> (Objects.isNull(guests) || room.getGuests() >= guests)
+                && (Objects.isNull(beds) || room.getBeds() >= beds))
+                .filterWhen(room -> bookingRepository
+                        .existsByRoomNumberAndDatesConflict(room.getRoomNumber(), startDate, endDate, null)
+                        .map(conflict -> !conflict));
+    }
+
+    //Room by room like the unordered bulk write, a room stored by another write in between is updated.
+    @Override
+    public Flux<RoomUpsert> bulkUpsert(List<Room> rooms) {
+        return Flux.fromIterable(rooms)
+                .map(this::upsert);
+    }
+
+    private synchronized RoomUpsert upsert(Room room) {
+        String id = byRoomNumber.get(room.getRoomNumber());
+        Room stored = Objects.isNull(id) ? null : documents.get(id);
+        Room upserted = copyOf(room);
+        upserted.setId(id);
+        upserted.setCreatedDate(Objects.isNull(stored) ? null : stored.getCreatedDate());
+        try {
+            store(List.of(upserted), false);
+            return new RoomUpsert(room.getRoomNumber(), Objects.isNull(id), null);
+        } catch (DuplicateKeyException e) {
+            return new RoomUpsert(room.getRoomNumber(), false, e.getMessage());
+        }
+    }
+
+    @Override
+    protected String idOf(Room room) {
+        return room.getId();
+    }
+
+    @Override
+    protected void assignId(Room room, String id) {
+        room.setId(id);
+    }
+
+    @Override
+    protected void checkUniqueKeys(Room room) {
+        String owner = byRoomNumber.get(room.getRoomNumber());
+        if (Objects.nonNull(owner) && !owner.equals(room.getId())) {
+            throw new DuplicateKeyException("Duplicate key roomNumber: " + room.getRoomNumber());
+        }
+    }
+
+    @Override
+    protected void beforeStore(Room room) {
+        LocalDateTime now = LocalDateTime.now();
+        if (Objects.isNull(room.getCreatedDate())) {
+            room.setCreatedDate(now);
+        }
+        room.setUpdatedDate(now);
+    }
+
+    @Override
+    protected void onStored(Room previous, Room stored) {
+        if (Objects.nonNull(previous)) {
+            byRoomNumber.remove(previous.getRoomNumber(), previous.getId());
+        }
+        byRoomNumber.put(stored.getRoomNumber(), stored.getId());
+    }
+
+    @Override
+    protected void onRemoved(Room removed) {
+        byRoomNumber.remove(removed.getRoomNumber(), removed.getId());
+    }
+
+    @Override
+    protected Room copyOf(Room room) {
+        return Room.builder()
+                .id(room.getId())
+                .roomNumber(room.getRoomNumber())
+                .bedrooms(room.getBedrooms())
+                .beds(room.getBeds())
+                .guests(room.getGuests())
+                .suites(room.getSuites())
+                .bathrooms(room.getBathrooms())
+                .createdDate(room.getCreatedDate())
+                .updatedDate(room.getUpdatedDate())
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.alten.booking.infrastructure.repository.memory;
+
+import com.alten.booking.infrastructure.repository.UserBookingsRepository;
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile("local")
+public class InMemoryUserBookingsRepository extends InMemoryRepository<UserBookings> implements UserBookingsRepository {
+
+    @Override
+    public Mono<Void> putBooking(String username, UserBookings.Item item, LocalDate today) {
+        return Mono.fromRunnable(() -> update(username, item, today));
+    }
+
+    //Read, modified and stored under the lock of the writes, like the single update of the mongo repository.
+    private synchronized void update(String username, UserBookings.Item added, LocalDate today) {
+        UserBookings stored = documents.get(username);
+        List<UserBookings.Item> current = Objects.isNull(stored) || Objects.isNull(stored.getBookings())
+                ? List.of()
+                : stored.getBookings();
+        if (current.stream().anyMatch(it -> Objects.equals(added.getBookingId(), it.getBookingId())
+                && isNewer(it.getUpdatedDate(), added.getUpdatedDate()))) {
+            return;
+        }
+        List<UserBookings.Item> bookings = current.stream()
+                .filter(it -> !Objects.equals(added.getBookingId(), it.getBookingId())
+                        && !it.getEndDate().isBefore(today))
+                .collect(Collectors.toCollection(ArrayList::new));
+        bookings.add(added);
+        store(List.of(new UserBookings(username, bookings, LocalDateTime.now())), false);
+    }
+
+    //Like the $gt of mongo, a missing version is older than any other.
+    private static boolean isNewer(LocalDateTime stored, LocalDateTime added) {
+        return Objects.nonNull(stored) && (Objects.isNull(added) || stored.isAfter(added));
+    }
+
+    @Override
+    protected String idOf(UserBookings document) {
+        return document.getUsername();
+    }
+
+    @Override
+    protected void assignId(UserBookings document, String id) {
+        document.setUsername(id);
+    }
+
+    @Override
+    protected UserBookings copyOf(UserBookings document) {
+        return UserBookings.builder()
+                .username(document.getUsername())
+                .bookings(Objects.isNull(document.getBookings()) ? null : document.getBookings().stream()
+                        .map(it -> it.toBuilder().build())
+                        .collect(Collectors.toList()))
+                .updatedDate(document.getUpdatedDate())
+                .build();
+    }
+}
@@ -1,9 +1,15 @@
 package com.alten.booking.api.controller;
 
+import com.alten.booking.api.dto.BookingGroupRequestDTO;
+import com.alten.booking.api.dto.BookingGroupResponseDTO;
+import com.alten.booking.api.dto.BookingPageDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.api.dto.RoomAvailabilityDTO;
+import com.alten.booking.api.dto.RoomCalendarDTO;
 import com.alten.booking.business.service.BookingService;
 import com.alten.booking.business.service.BookingServiceValidator;
+import com.alten.booking.business.service.IdempotencyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
@@ -16,11 +22,16 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.function.Supplier;
 
+import static com.alten.booking.stub.Stubs.bookingGroupRequestDTOStub;
 import static com.alten.booking.stub.Stubs.bookingResponseDTOStub;
 import static com.alten.booking.stub.Stubs.validBookingRequestDTOStub;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
@@ -32,10 +43,16 @@ public class BookingControllerTest {
     private BookingService service;
     @MockBean
     private BookingServiceValidator serviceValidator;
+    @MockBean
+    private IdempotencyService idempotency;
 
     @BeforeEach
+    @SuppressWarnings("unchecked")
     void initClient() {
-        webClient = WebTestClient.bindToController(new BookingController(service, serviceValidator)).build();
+        when(idempotency.execute(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<Mono<BookingResponseDTO>>) invocation.getArgument(4)).get());
+        webClient = WebTestClient.bindToController(new BookingController(service, serviceValidator, idempotency))
+                .build();
     }
 
     @Test
@@ -53,10 +70,26 @@ public class BookingControllerTest {
         assertNotNull(responseBody);
     }
 
+    @Test
+    void awaitByIdShouldWork() {
+        when(service.awaitById(any(), any())).thenReturn(Mono.just(bookingResponseDTOStub()));
+
+        BookingResponseDTO responseBody = webClient.get().uri("/booking/123/await?timeout=5")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(BookingResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(responseBody);
+        verify(service).awaitById("123", 5L);
+    }
+
     @Test
     void findAllByUsernameShouldWork() {
-        when(service.findAllByUsername(any()))
-                .thenReturn(Flux.just(bookingResponseDTOStub(), bookingResponseDTOStub()));
+        when(service.findActiveByUsername(any()))
+                .thenReturn(Mono.just(List.of(bookingResponseDTOStub(), bookingResponseDTOStub())));
 
         List<BookingResponseDTO> responseBody = webClient.get().uri("/booking")
                 .header("username", "jean")
@@ -68,6 +101,49 @@ public class BookingControllerTest {
                 .getResponseBody();
 
         assertNotNull(responseBody);
+        assertEquals(2, responseBody.size());
+    }
+
+    @Test
+    void findHistoryByUsernameShouldWork() {
+        when(service.findPageByUsername(any(), any(), any()))
+                .thenReturn(Mono.just(BookingPageDTO.builder()
+                        .bookings(List.of(bookingResponseDTOStub(), bookingResponseDTOStub()))
+                        .nextCursor("next")
+                        .build()));
+
+        List<BookingResponseDTO> responseBody = webClient.get().uri("/booking/history?limit=2")
+                .header("username", "jean")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().valueEquals(BookingController.NEXT_CURSOR_HEADER, "next")
+                .expectBodyList(BookingResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(responseBody);
+        assertEquals(2, responseBody.size());
+    }
+
+    @Test
+    void streamAllByUsernameShouldWork() {
+        when(service.findAllByUsername(any()))
+                .thenReturn(Flux.just(bookingResponseDTOStub(), bookingResponseDTOStub()));
+
+        List<BookingResponseDTO> responseBody = webClient.get().uri("/booking/stream")
+                .header("username", "jean")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BookingResponseDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertNotNull(responseBody);
+        assertEquals(2, responseBody.size());
     }
 
     @Test
@@ -88,6 +164,45 @@ public class BookingControllerTest {
         assertNotNull(responseBody);
     }
 
+    @Test
+    void createGroupShouldWork() {
+        when(serviceValidator.validateGroupHeaders(any(), any())).thenReturn(Mono.just(bookingGroupRequestDTOStub()));
+        when(service.createGroup(any())).thenReturn(Mono.just(BookingGroupResponseDTO.builder()
+                .id("6303c736c2f14e77828504cb")
+                .username("jean")
+                .bookings(List.of(bookingResponseDTOStub(), bookingResponseDTOStub()))
+                .build()));
+
+        BookingGroupResponseDTO responseBody = webClient.post().uri("/booking/group")
+                .body(Mono.just(bookingGroupRequestDTOStub()), BookingGroupRequestDTO.class)
+                .header("username", "jean")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(BookingGroupResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(responseBody);
+        assertEquals(2, responseBody.getBookings().size());
+    }
+
+    @Test
+    void createBookingShouldPassTheIdempotencyKey() {
+        when(serviceValidator.validateHeaders(any(), any())).thenReturn(Mono.just(validBookingRequestDTOStub()));
+        when(service.createBooking(any())).thenReturn(Mono.just(bookingResponseDTOStub()));
+
+        webClient.post().uri("/booking")
+                .body(Mono.just(validBookingRequestDTOStub()), BookingRequestDTO.class)
+                .header("username", "jean")
+                .header(BookingController.IDEMPOTENCY_KEY_HEADER, "7c1f4a52")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful();
+
+        verify(idempotency).execute(eq("jean"), eq("7c1f4a52"), eq("create"), any(), any());
+    }
+
     @Test
     void updateBookingShouldWork() {
         when(serviceValidator.validateHeaders(any(), any())).thenReturn(Mono.just(validBookingRequestDTOStub()));
@@ -124,14 +239,17 @@ public class BookingControllerTest {
 
     @Test
     void findBookingsByRoomNumberShouldWork() {
-        when(service.findAllByRoomNumberAndStatus(any(), any()))
-                .thenReturn(Flux.just(bookingResponseDTOStub(), bookingResponseDTOStub()));
+        when(service.findPageByRoomNumberAndStatus(any(), any(), any(), any()))
+                .thenReturn(Mono.just(BookingPageDTO.builder()
+                        .bookings(List.of(bookingResponseDTOStub(), bookingResponseDTOStub()))
+                        .build()));
 
         List<BookingResponseDTO> responseBody = webClient.get().uri("/booking/room/123?status=BOOKED")
                 .header("username", "jean")
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().is2xxSuccessful()
+                .expectHeader().doesNotExist(BookingController.NEXT_CURSOR_HEADER)
                 .expectBodyList(BookingResponseDTO.class)
                 .returnResult()
                 .getResponseBody();
@@ -139,6 +257,25 @@ public class BookingControllerTest {
         assertNotNull(responseBody);
     }
 
+    @Test
+    void streamBookingsByRoomNumberShouldWork() {
+        when(service.findAllByRoomNumberAndStatus(any(), any()))
+                .thenReturn(Flux.just(bookingResponseDTOStub(), bookingResponseDTOStub()));
+
+        List<BookingResponseDTO> responseBody = webClient.get().uri("/booking/room/123/stream?status=BOOKED")
+                .header("username", "jean")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .returnResult(BookingResponseDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertNotNull(responseBody);
+        assertEquals(2, responseBody.size());
+    }
+
     @Test
     void findBookingAvailabilityShouldWork() {
         when(service.isValidRequestAndRoomAvailable(any(), any(), any())).thenReturn(Mono.just(Boolean.TRUE));
@@ -154,4 +291,56 @@ public class BookingControllerTest {
 
         assertNotNull(responseBody);
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamRoomAvailabilityShouldWork() {
+        when(service.streamRoomAvailability(any()))
+                .thenReturn(Flux.just(RoomAvailabilityDTO.builder().roomNumber(123L).available(Boolean.TRUE).build()));
+
+        List<RoomAvailabilityDTO> responseBody = webClient.get().uri("/booking/room/123/availability/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(RoomAvailabilityDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertNotNull(responseBody);
+        assertEquals(1, responseBody.size());
+    }
+
+    @Test
+    void findLocalOccupancyShouldWork() {
+        when(service.isAvailableInLocalStore(any(), any(), any(), any())).thenReturn(Mono.just(Boolean.TRUE));
+
+        Boolean responseBody = webClient.get()
+                .uri("/booking/room/123/occupancy?startDate=2022-08-26&endDate=2022-08-27")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(Boolean.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(Boolean.TRUE, responseBody);
+    }
+
+    @Test
+    void findRoomCalendarShouldWork() {
+        when(service.findRoomCalendar(any(), any(), any()))
+                .thenReturn(Mono.just(RoomCalendarDTO.builder().roomNumber(123L).nights("1101").build()));
+
+        RoomCalendarDTO responseBody = webClient.get()
+                .uri("/booking/room/123/calendar?from=2022-08-26&to=2022-08-29")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(RoomCalendarDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(responseBody);
+    }
+}
@@ -3,8 +3,10 @@ package com.alten.booking.api.controller;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
 import com.alten.booking.api.dto.RoomDTO;
+import com.alten.booking.api.dto.RoomImportResultDTO;
 import com.alten.booking.business.service.BookingService;
 import com.alten.booking.business.service.BookingServiceValidator;
+import com.alten.booking.business.service.RoomImportService;
 import com.alten.booking.business.service.RoomService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,6 +23,7 @@ import java.util.List;
 
 import static com.alten.booking.stub.Stubs.bookingResponseDTOStub;
 import static com.alten.booking.stub.Stubs.validBookingRequestDTOStub;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -33,10 +36,12 @@ public class RoomControllerTest {
     private WebTestClient webClient;
     @MockBean
     private RoomService service;
+    @MockBean
+    private RoomImportService importService;
 
     @BeforeEach
     void initClient() {
-        webClient = WebTestClient.bindToController(new RoomController(service)).build();
+        webClient = WebTestClient.bindToController(new RoomController(service, importService)).build();
     }
 
     @Test
@@ -100,4 +105,39 @@ public class RoomControllerTest {
 
         assertNotNull(responseBody);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllAvailableShouldWork() {
+        when(service.findAllAvailable(any(), any(), any(), any())).thenReturn(Flux.just(RoomDTO.builder().build()));
+
+        List<RoomDTO> responseBody = webClient.get()
+                .uri("/room/availability?startDate=2022-08-26&endDate=2022-08-27&guests=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(RoomDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(responseBody);
+    }
+
+    @Test
+    void importRoomsShouldWork() {
+        when(importService.importRooms(any())).thenAnswer(invocation -> invocation.<Flux<String>>getArgument(0)
+                .map(line -> RoomImportResultDTO.builder().status(RoomImportResultDTO.Status.CREATED).build()));
+
+        List<RoomImportResultDTO> responseBody = webClient.post().uri("/room/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"roomNumber\": 1}\n{\"roomNumber\": 2}\n")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(RoomImportResultDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(responseBody);
+        assertEquals(2, responseBody.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private BookingMetrics metrics;
+
+    @BeforeEach
+    void initMetrics() {
+        registry = new SimpleMeterRegistry();
+        metrics = new BookingMetrics(registry);
+    }
+
+    @Test
+    public void timedShouldTagTheStageAndOutcome() {
+        metrics.timed(BookingMetrics.SAVE, Mono.just("saved")).block();
+        metrics.timed(BookingMetrics.SAVE, Mono.empty()).block();
+
+        assertEquals(1, timer(BookingMetrics.SAVE, "success").count());
+        assertEquals(1, timer(BookingMetrics.SAVE, "empty").count());
+    }
+
+    @Test
+    public void timedShouldTagTheOutcomeOfAnError() {
+        assertThatExceptionOfType(BusinessException.class).isThrownBy(() -> metrics
+                .timed(BookingMetrics.VALIDATION, Mono.error(new BusinessException("rejected"))).block());
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> metrics
+                .timed(BookingMetrics.VALIDATION, Mono.error(new IllegalStateException("mongo"))).block());
+
+        assertEquals(1, timer(BookingMetrics.VALIDATION, "rejected").count());
+        assertEquals(1, timer(BookingMetrics.VALIDATION, "error").count());
+    }
+
+    @Test
+    public void timedShouldStartOnSubscription() {
+        Mono<String> timed = metrics.timed(BookingMetrics.SAVE, Mono.just("saved"));
+
+        assertNull(registry.find("booking.stage").timer());
+        timed.block();
+        assertNotNull(registry.find("booking.stage").timer());
+    }
+
+    @Test
+    public void timedShouldNotTagTheRoom() {
+        metrics.timed(BookingMetrics.SAVE, Mono.just("saved")).block();
+
+        assertTrue(registry.get("booking.stage").timer().getId().getTags().stream()
+                .noneMatch(tag -> tag.getKey().equals("room")));
+    }
+
+    @Test
+    public void recordConfirmationShouldSkipBookingsWithoutCreatedDate() {
+        metrics.recordConfirmation(Booking.builder().createdDate(LocalDateTime.now().minusSeconds(2)).build());
+        metrics.recordConfirmation(Booking.builder().build());
+
+        Timer latency = registry.get("booking.confirmation.latency").timer();
+        assertEquals(1, latency.count());
+        assertTrue(latency.totalTime(TimeUnit.SECONDS) >= 2);
+    }
+
+    private Timer timer(String stage, String outcome) {
+        return registry.get("booking.stage").tag("stage", stage).tag("outcome", outcome).timer();
+    }
+}
@@ -0,0 +1,69 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.business.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingPolicyTest {
+
+    //22:30 UTC on the 26th is already the 27th in Paris.
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2022-08-26T22:30:00Z"), ZoneId.of("Europe/Paris"));
+    private static final LocalDate TODAY = LocalDate.of(2022, 8, 27);
+
+    private final BookingPolicy policy = new BookingPolicy(new BookingPolicyProperties(), CLOCK);
+
+    @Test
+    public void checkStayShouldAcceptTheLongestStay() {
+        assertNull(policy.checkStay(237L, TODAY.plusDays(1), TODAY.plusDays(3)));
+        assertNull(policy.checkStay(237L, TODAY.plusDays(30), TODAY.plusDays(30)));
+    }
+
+    @Test
+    public void checkStayShouldUseTheClockZone() {
+        assertEquals("Reservations start at least the next day of booking!",
+                policy.checkStay(237L, TODAY, TODAY).getMessage());
+        assertNull(policy.checkStay(237L, TODAY.plusDays(1), TODAY.plusDays(1)));
+    }
+
+    @Test
+    public void checkStayShouldRejectWithPreallocatedExceptions() {
+        BusinessException tooLong = policy.checkStay(237L, TODAY.plusDays(2), TODAY.plusDays(5));
+
+        assertEquals("The stay can’t be longer than 3 days!", tooLong.getMessage());
+        assertEquals(0, tooLong.getStackTrace().length);
+        assertSame(tooLong, policy.checkStay(237L, TODAY.plusDays(10), TODAY.plusDays(20)));
+        assertEquals("The stay can’t be reserved more than 30 days in advance!",
+                policy.checkStay(237L, TODAY.plusDays(33), TODAY.plusDays(33)).getMessage());
+        assertEquals("End date should be after start date",
+                policy.checkStay(237L, TODAY.plusDays(5), TODAY.plusDays(4)).getMessage());
+    }
+
+    @Test
+    public void checkStayShouldApplyTheRoomRules() {
+        BookingPolicyProperties properties = new BookingPolicyProperties();
+        BookingPolicyProperties.Room suite = new BookingPolicyProperties.Room();
+        suite.setMaxStayDays(7);
+        suite.setMinLeadDays(3);
+        properties.getRooms().put(238L, suite);
+        BookingPolicy roomPolicy = new BookingPolicy(properties, CLOCK);
+
+        assertNull(roomPolicy.checkStay(238L, TODAY.plusDays(4), TODAY.plusDays(10)));
+        assertEquals("Reservations start at least 3 days after booking!",
+                roomPolicy.checkStay(238L, TODAY.plusDays(2), TODAY.plusDays(4)).getMessage());
+        assertEquals("The stay can’t be longer than 3 days!",
+                roomPolicy.checkStay(237L, TODAY.plusDays(4), TODAY.plusDays(10)).getMessage());
+    }
+
+    @Test
+    public void checkCalendarShouldStopAtTheLastNight() {
+        assertNull(policy.checkCalendar(237L, TODAY.plusDays(2), TODAY.plusDays(32)));
+        assertEquals("The calendar can’t go beyond the last night that can be reserved!",
+                policy.checkCalendar(237L, TODAY.plusDays(2), TODAY.plusDays(33)).getMessage());
+    }
+}
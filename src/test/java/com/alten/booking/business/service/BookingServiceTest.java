@@ -1,23 +1,40 @@
 package com.alten.booking.business.service;
 
+import com.alten.booking.api.dto.BookingGroupResponseDTO;
+import com.alten.booking.api.dto.BookingPageDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.api.dto.RoomCalendarDTO;
+import com.alten.booking.business.exception.BadRequestException;
 import com.alten.booking.business.exception.BusinessException;
 import com.alten.booking.business.exception.NotFoundException;
 import com.alten.booking.business.mapper.BookingMapper;
-import com.alten.booking.infrastructure.messaging.producer.BookingEventProducer;
+import com.alten.booking.infrastructure.messaging.producer.BookingEventPublisher;
+import com.alten.booking.infrastructure.messaging.streams.RoomOccupancyStore;
 import com.alten.booking.infrastructure.repository.BookingRepository;
 import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingGroup;
 import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 
 import static com.alten.booking.stub.Stubs.*;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
@@ -34,9 +51,24 @@ public class BookingServiceTest {
     @Spy
     private BookingMapper mapper = Mappers.getMapper(BookingMapper.class);
     @Mock
-    private BookingEventProducer producer;
+    private BookingEventPublisher producer;
     @Mock
     private BookingServiceValidator validator;
+    @Mock
+    private RoomOccupancyIndex occupancyIndex;
+    @Mock
+    private RoomNightService roomNightService;
+    @Mock
+    private RoomAvailabilityNotifier availabilityNotifier;
+    @Spy
+    private BookingMetrics metrics = new BookingMetrics(new SimpleMeterRegistry());
+    @Mock
+    private BookingStatusNotifier statusNotifier;
+    @Spy
+    private RoomOccupancyStore occupancyStore = new RoomOccupancyStore(null, WebClient.builder(), metrics, false,
+            Duration.ofMillis(500), "");
+    @Mock
+    private UserBookingsService userBookings;
 
     @Test
     public void findByIdShouldWork() {
@@ -89,19 +121,183 @@ public class BookingServiceTest {
                 .isThrownBy(() -> service.findAllByRoomNumberAndStatus(anyLong(), any()).blockFirst());
     }
 
+    @Test
+    public void findActiveByUsernameShouldWork() {
+        doReturn(Mono.just(List.of(UserBookings.Item.builder().bookingId("1").roomNumber(237L).build())))
+                .when(userBookings).findActiveByUsername(anyString());
+
+        List<BookingResponseDTO> response = service.findActiveByUsername("jean").block();
+
+        assertNotNull(response);
+        assertEquals(1, response.size());
+        assertEquals("1", response.get(0).getId());
+        assertEquals("jean", response.get(0).getUsername());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void findActiveByUsernameThrowsNotFound() {
+        doReturn(Mono.just(List.of())).when(userBookings).findActiveByUsername(anyString());
+
+        assertThatExceptionOfType(NotFoundException.class)
+                .isThrownBy(() -> service.findActiveByUsername("jean").block());
+    }
+
+    @Test
+    public void findPageByUsernameShouldReturnNextCursor() {
+        Booking first = bookingStub();
+        Booking second = bookingStub().setId("6303c736c2f14e77828504cb");
+        doReturn(Flux.just(first, second)).when(repository).findPageByUsername(anyString(), any(), any(), anyInt());
+
+        BookingPageDTO response = service.findPageByUsername("jean", null, 1).block();
+
+        assertNotNull(response);
+        assertEquals(1, response.getBookings().size());
+        assertNotNull(response.getNextCursor());
+        verify(repository).findPageByUsername("jean", null, null, 2);
+
+        service.findPageByUsername("jean", response.getNextCursor(), 1).block();
+
+        verify(repository).findPageByUsername("jean", first.getStartDate(), first.getId(), 2);
+    }
+
+    @Test
+    public void findPageByUsernameLastPageHasNoCursor() {
+        doReturn(Flux.just(bookingStub())).when(repository).findPageByUsername(anyString(), any(), any(), anyInt());
+
+        BookingPageDTO response = service.findPageByUsername("jean", null, null).block();
+
+        assertNotNull(response);
+        assertEquals(1, response.getBookings().size());
+        assertNull(response.getNextCursor());
+        verify(repository).findPageByUsername("jean", null, null, BookingService.DEFAULT_PAGE_SIZE + 1);
+    }
+
+    @Test
+    public void findPageByUsernameThrowsNotFound() {
+        doReturn(Flux.empty()).when(repository).findPageByUsername(anyString(), any(), any(), anyInt());
+
+        assertThatExceptionOfType(NotFoundException.class)
+                .isThrownBy(() -> service.findPageByUsername("jean", null, null).block());
+    }
+
+    @Test
+    public void findPageByUsernameThrowsInvalidCursor() {
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> service.findPageByUsername("jean", "not a cursor", null).block())
+                .withMessage("Invalid cursor!");
+    }
+
+    @Test
+    public void findPageByRoomNumberAndStatusShouldWork() {
+        doReturn(Flux.just(bookingStub())).when(repository)
+                .findPageByRoomNumberAndStatus(anyLong(), any(), any(), any(), anyInt());
+
+        BookingPageDTO response = service.findPageByRoomNumberAndStatus(237L, BookingStatus.BOOKED, null, 1000).block();
+
+        assertNotNull(response);
+        assertEquals(1, response.getBookings().size());
+        verify(repository).findPageByRoomNumberAndStatus(237L, BookingStatus.BOOKED, null, null,
+                BookingService.MAX_PAGE_SIZE + 1);
+    }
+
     @Test
     public void createBookingShouldWork() {
         BookingRequestDTO stub = validBookingRequestDTOStub();
         Booking bookingStub = bookingStub();
 
         doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
-        doReturn(Flux.empty()).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
         doReturn(Mono.just(bookingStub)).when(producer).bookingEventOutput(any());
 
         BookingResponseDTO response = service.createBooking(stub).block();
 
         assertNotNull(response);
         assertEquals(bookingStub.getUsername(), response.getUsername());
+        verify(producer).bookingEventOutput(argThat(booking -> booking.getId() != null
+                && BookingStatus.PENDING == booking.getStatus()));
+    }
+
+    @Test
+    public void createGroupShouldSendASingleEvent() {
+        doAnswer(invocation -> Mono.just(invocation.getArgument(0))).when(validator).validateGroup(any());
+        doReturn(Mono.empty()).when(repository).findFirstConflicting(any());
+        doAnswer(invocation -> Mono.just(invocation.getArgument(0))).when(producer).bookingGroupEventOutput(any());
+
+        BookingGroupResponseDTO response = service.createGroup(bookingGroupRequestDTOStub()).block();
+
+        assertNotNull(response);
+        assertNotNull(response.getId());
+        assertEquals(2, response.getBookings().size());
+        response.getBookings().forEach(booking -> {
+            assertNotNull(booking.getId());
+            assertEquals(response.getId(), booking.getGroupId());
+            assertEquals("jean", booking.getUsername());
+            assertEquals(BookingStatus.PENDING, booking.getStatus());
+        });
+        verify(producer, times(1)).bookingGroupEventOutput(any());
+        verify(repository, times(1)).findFirstConflicting(any());
+    }
+
+    @Test
+    public void createGroupThrowsWhenARoomIsNotAvailable() {
+        doAnswer(invocation -> Mono.just(invocation.getArgument(0))).when(validator).validateGroup(any());
+        doReturn(Mono.just(bookingStub().setRoomNumber(238L))).when(repository).findFirstConflicting(any());
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.createGroup(bookingGroupRequestDTOStub()).block())
+                .withMessage("Room 238 not available for given dates!");
+        verify(producer, never()).bookingGroupEventOutput(any());
+    }
+
+    @Test
+    public void createGroupThrowsWhenTheStreamsDecideTheBookings() {
+        doReturn(true).when(occupancyStore).isEnabled();
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.createGroup(bookingGroupRequestDTOStub()).block())
+                .withMessage("Group bookings are not available when the bookings are decided in kafka streams!");
+        verify(producer, never()).bookingGroupEventOutput(any());
+    }
+
+    @Test
+    public void awaitByIdShouldReturnAPersistedBookingAtOnce() {
+        Booking bookingStub = bookingStub();
+
+        doReturn(Mono.never()).when(statusNotifier).next(anyString());
+        doReturn(Duration.ofSeconds(5)).when(statusNotifier).timeoutOf(any());
+        doReturn(Mono.just(bookingStub)).when(repository).findById(anyString());
+
+        BookingResponseDTO response = service.awaitById(bookingStub.getId(), null).block(Duration.ofSeconds(1));
+
+        assertNotNull(response);
+        assertEquals(bookingStub.getId(), response.getId());
+    }
+
+    @Test
+    public void awaitByIdShouldReturnTheBookingOnceSignalled() {
+        Booking bookingStub = bookingStub();
+        Sinks.One<String> signal = Sinks.one();
+
+        doReturn(signal.asMono()).when(statusNotifier).next(anyString());
+        doReturn(Duration.ofSeconds(5)).when(statusNotifier).timeoutOf(any());
+        doReturn(Mono.empty(), Mono.just(bookingStub)).when(repository).findById(anyString());
+
+        StepVerifier.create(service.awaitById(bookingStub.getId(), null))
+                .then(() -> signal.tryEmitValue(bookingStub.getId()))
+                .assertNext(response -> assertEquals(BookingStatus.BOOKED, response.getStatus()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void awaitByIdThrowsNotFoundAfterTimeout() {
+        doReturn(Mono.never()).when(statusNotifier).next(anyString());
+        doReturn(Duration.ofMillis(10)).when(statusNotifier).timeoutOf(any());
+        doReturn(Mono.empty()).when(repository).findById(anyString());
+
+        assertThatExceptionOfType(NotFoundException.class)
+                .isThrownBy(() -> service.awaitById("6303c736c2f14e77828504ca", 1L).block())
+                .withMessage("Booking not found or not confirmed yet!");
     }
 
     @Test
@@ -121,7 +317,7 @@ public class BookingServiceTest {
         Booking bookingStub = bookingStub();
 
         doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
-        doReturn(Flux.just(bookingStub)).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.TRUE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
 
         assertThatExceptionOfType(BusinessException.class)
                 .isThrownBy(() -> service.createBooking(stub).block())
@@ -135,7 +331,7 @@ public class BookingServiceTest {
 
         doReturn(Mono.just(bookingStub)).when(repository).findById(anyString());
         doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
-        doReturn(Flux.empty()).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
         doReturn(Mono.just(bookingStub)).when(producer).bookingEventOutput(any());
 
         BookingResponseDTO response = service.updateBookingById("6303c736c2f14e77828504ca", stub).block();
@@ -144,6 +340,20 @@ public class BookingServiceTest {
         assertEquals(bookingStub.getUsername(), response.getUsername());
     }
 
+    @Test
+    public void updateBookingThrowsWhenTheStreamsDecideARoomChange() {
+        BookingRequestDTO stub = validBookingRequestDTOStub();
+        stub.setRoomNumber(238L);
+
+        doReturn(true).when(occupancyStore).isEnabled();
+        doReturn(Mono.just(bookingStub())).when(repository).findById(anyString());
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.updateBookingById("6303c736c2f14e77828504ca", stub).block())
+                .withMessage("A booking can't change rooms when the bookings are decided in kafka streams!");
+        verify(producer, never()).bookingEventOutput(any());
+    }
+
     @Test
     public void updateBookingThrowsNotFound() {
         BookingRequestDTO stub = validBookingRequestDTOStub();
@@ -175,7 +385,7 @@ public class BookingServiceTest {
 
         doReturn(Mono.just(bookingStub)).when(repository).findById(anyString());
         doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
-        doReturn(Flux.just(bookingStub)).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.TRUE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
 
         assertThatExceptionOfType(BusinessException.class)
                 .isThrownBy(() -> service.updateBookingById("6303c736c2f14e77828504ca", stub).block())
@@ -209,7 +419,7 @@ public class BookingServiceTest {
         BookingRequestDTO stub = validBookingRequestDTOStub();
 
         doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
-        doReturn(Flux.empty()).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
 
         Boolean response = service.isValidRequestAndRoomAvailable(stub.getRoomNumber(), stub.getStartDate(), stub.getEndDate()).block();
 
@@ -217,36 +427,106 @@ public class BookingServiceTest {
         assertTrue(response);
     }
 
+    @Test
+    public void isValidRequestAndRoomAvailableUsesOccupancyStore() {
+        BookingRequestDTO stub = validBookingRequestDTOStub();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
+        doReturn(Mono.just(Boolean.FALSE)).when(occupancyStore).isAvailable(any(), any(), any(), any());
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.isValidRequestAndRoomAvailable(stub.getRoomNumber(), stub.getStartDate(), stub.getEndDate()).block())
+                .withMessage("Room not available for given dates!");
+        verify(occupancyIndex, never()).isAvailable(any());
+        verify(repository, never()).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
+    }
+
+    @Test
+    public void isValidRequestAndRoomAvailableUsesWarmIndex() {
+        BookingRequestDTO stub = validBookingRequestDTOStub();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
+        doReturn(Optional.of(Boolean.TRUE)).when(occupancyIndex).isAvailable(any());
+
+        Boolean response = service.isValidRequestAndRoomAvailable(stub.getRoomNumber(), stub.getStartDate(), stub.getEndDate()).block();
+
+        assertEquals(Boolean.TRUE, response);
+        verify(repository, never()).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
+    }
+
+    @Test
+    public void isValidRequestAndRoomAvailableConfirmsTakenIndexInRepository() {
+        BookingRequestDTO stub = validBookingRequestDTOStub();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
+        doReturn(Optional.of(Boolean.FALSE)).when(occupancyIndex).isAvailable(any());
+        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
+
+        Boolean response = service.isValidRequestAndRoomAvailable(stub.getRoomNumber(), stub.getStartDate(), stub.getEndDate()).block();
+
+        assertEquals(Boolean.TRUE, response);
+        verify(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
+    }
+
     @Test
     public void isValidRequestAndRoomAvailableThrowsException() {
         BookingRequestDTO stub = validBookingRequestDTOStub();
 
         doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndDatesAreCorrect(any());
-        doReturn(Flux.just(Booking.builder().build())).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.TRUE)).when(repository).existsByRoomNumberAndDatesConflict(any(), any(), any(), any());
 
         assertThatExceptionOfType(BusinessException.class)
                 .isThrownBy(() -> service.isValidRequestAndRoomAvailable(stub.getRoomNumber(), stub.getStartDate(), stub.getEndDate()).block())
                 .withMessage("Room not available for given dates!");
     }
 
+    @Test
+    public void findRoomCalendarShouldWork() {
+        Booking bookingStub = bookingStub();
+        LocalDate from = bookingStub.getStartDate().minusDays(1);
+        LocalDate to = bookingStub.getEndDate().plusDays(1);
+
+        doReturn(Mono.just(Boolean.TRUE)).when(validator).validateRoomExistsAndCalendarIsCorrect(any(), any(), any());
+        doReturn(Flux.just(bookingStub)).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+
+        RoomCalendarDTO response = service.findRoomCalendar(237L, from, to).block();
+
+        assertNotNull(response);
+        assertEquals("10001", response.getNights());
+    }
+
     @Test
     public void createOrUpdateShouldWork() {
         Booking bookingStub = bookingStub();
 
-        doReturn(Flux.empty()).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.empty()).when(roomNightService).releaseStale(any());
         doReturn(Mono.just(bookingStub)).when(repository).save(any());
 
         Booking response = service.createOrUpdate(bookingStub).block();
 
         assertNotNull(response);
         assertEquals(bookingStub.getUsername(), response.getUsername());
+        verify(roomNightService).releaseStale(bookingStub);
+    }
+
+    @Test
+    public void createOrUpdateShouldKeepThePreviousNightsWhenTheSaveOfAnUpdateFails() {
+        Booking updated = bookingStub();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.error(new IllegalStateException("mongo down"))).when(repository).save(any());
+
+        assertThrows(IllegalStateException.class, () -> service.createOrUpdate(updated).block());
+        verify(roomNightService, never()).releaseStale(any());
+        verify(roomNightService, never()).release(any());
     }
 
     @Test
     public void createOrUpdateShouldUpdateOverbooked() {
         Booking bookingStub = bookingStub();
 
-        doReturn(Flux.just(Booking.builder().build())).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserve(any(), anyBoolean());
         doReturn(Mono.just(bookingStub)).when(repository).save(any());
 
         Booking response = service.createOrUpdate(bookingStub.setId(null)).block();
@@ -260,7 +540,7 @@ public class BookingServiceTest {
     public void createOrUpdateThrowsException() {
         Booking bookingStub = bookingStub();
 
-        doReturn(Flux.just(Booking.builder().build())).when(repository).findAllByRoomNumberAndDatesConflict(any(), any(), any(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserve(any(), anyBoolean());
         doReturn(Mono.just(bookingStub)).when(repository).save(any());
 
         assertThatExceptionOfType(BusinessException.class)
@@ -268,11 +548,189 @@ public class BookingServiceTest {
                 .withMessage("Sending message: Could not update your booking!");
     }
 
+    @Test
+    public void createOrUpdateShouldReleaseTheNightsWhenTheSaveFails() {
+        Booking created = bookingStub().pending();
+
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.empty()).when(roomNightService).release(any());
+        doReturn(Mono.error(new IllegalStateException("mongo down"))).when(repository).save(any());
+
+        assertThrows(IllegalStateException.class, () -> service.createOrUpdate(created).block());
+        assertEquals(BookingStatus.PENDING, created.getStatus());
+        verify(roomNightService).release(created);
+    }
+
+    @Test
+    public void persistDecidedShouldReserveTheNights() {
+        Booking decided = bookingStub();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.empty()).when(roomNightService).releaseStale(any());
+        doReturn(Mono.just(decided)).when(repository).save(any());
+
+        Booking response = service.persistDecided(decided).block();
+
+        assertNotNull(response);
+        assertEquals(BookingStatus.BOOKED, response.getStatus());
+        verify(roomNightService).reserve(decided, false);
+    }
+
+    @Test
+    public void persistDecidedShouldOverbookANewBookingOnTakenNights() {
+        Booking decided = bookingStub();
+
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsById(anyString());
+        doAnswer(invocation -> Mono.just(invocation.getArgument(0))).when(repository).save(any());
+
+        Booking response = service.persistDecided(decided).block();
+
+        assertNotNull(response);
+        assertEquals(BookingStatus.OVERBOOKED, response.getStatus());
+    }
+
+    @Test
+    public void persistDecidedThrowsExceptionForAnUpdateOnTakenNights() {
+        Booking decided = bookingStub();
+
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.just(Boolean.TRUE)).when(repository).existsById(anyString());
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.persistDecided(decided).block())
+                .withMessage("Sending message: Could not update your booking!");
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void createOrUpdateAllShouldOverbookConflictsInsideTheBatch() {
+        Booking first = bookingStub().setId(null).pending();
+        Booking second = bookingStub().setId(null).pending();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0))).when(repository).bulkSave(any());
+
+        List<Booking> response = service.createOrUpdateAll(List.of(first, second)).collectList().block();
+
+        assertNotNull(response);
+        assertEquals(BookingStatus.BOOKED, response.get(0).getStatus());
+        assertNotNull(response.get(0).getId());
+        assertEquals(BookingStatus.OVERBOOKED, response.get(1).getStatus());
+    }
+
+    @Test
+    public void createOrUpdateAllShouldOverbookNightsReservedElsewhere() {
+        Booking created = bookingStub().setId(null).pending();
+
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserve(any(), anyBoolean());
+        doAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0))).when(repository).bulkSave(any());
+
+        List<Booking> response = service.createOrUpdateAll(List.of(created)).collectList().block();
+
+        assertNotNull(response);
+        assertEquals(BookingStatus.OVERBOOKED, response.get(0).getStatus());
+    }
+
+    @Test
+    public void createOrUpdateAllShouldBookCancelledNights() {
+        Booking cancelled = bookingStub().cancelled();
+        Booking created = bookingStub().setId(null).pending();
+
+        doReturn(Mono.empty()).when(roomNightService).release(any());
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0))).when(repository).bulkSave(any());
+
+        List<Booking> response = service.createOrUpdateAll(List.of(cancelled, created)).collectList().block();
+
+        assertNotNull(response);
+        assertEquals(BookingStatus.CANCELLED, response.get(0).getStatus());
+        assertEquals(BookingStatus.BOOKED, response.get(1).getStatus());
+    }
+
+    @Test
+    public void createOrUpdateAllShouldReleaseTheStaleNightsOfTheUpdatesOnceSaved() {
+        Booking updated = bookingStub();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.empty()).when(roomNightService).releaseStale(any());
+        doAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0))).when(repository).bulkSave(any());
+
+        service.createOrUpdateAll(List.of(updated)).blockLast();
+
+        verify(roomNightService).releaseStale(updated);
+    }
+
+    @Test
+    public void createOrUpdateAllShouldReleaseTheNightsWhenTheBulkWriteFails() {
+        Booking created = bookingStub().setId(null).pending();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.empty()).when(roomNightService).release(any());
+        doReturn(Flux.error(new IllegalStateException("mongo down"))).when(repository).bulkSave(any());
+
+        assertThrows(IllegalStateException.class, () -> service.createOrUpdateAll(List.of(created)).blockLast());
+        verify(roomNightService).release(created);
+    }
+
+    @Test
+    public void createOrUpdateAllShouldRestoreTheCancelledNightsWhenTheBulkWriteFails() {
+        Booking cancelled = bookingStub().cancelled();
+        Booking created = bookingStub().setId(null).pending();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserve(any(), anyBoolean());
+        doReturn(Mono.empty()).when(roomNightService).release(any());
+        doReturn(Mono.empty()).when(roomNightService).restore(any());
+        doReturn(Flux.error(new IllegalStateException("mongo down"))).when(repository).bulkSave(any());
+
+        assertThrows(IllegalStateException.class,
+                () -> service.createOrUpdateAll(List.of(cancelled, created)).blockLast());
+        InOrder inOrder = inOrder(roomNightService);
+        inOrder.verify(roomNightService).release(created);
+        inOrder.verify(roomNightService).restore(cancelled);
+    }
+
+    @Test
+    public void confirmGroupShouldBookAllTheBookings() {
+        BookingGroup group = BookingGroup.builder()
+                .id("6303c736c2f14e77828504cb")
+                .bookings(List.of(bookingStub().pending(), bookingStub().setRoomNumber(238L).pending()))
+                .build();
+
+        doReturn(Mono.just(Boolean.TRUE)).when(roomNightService).reserveAll(any());
+        doAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0))).when(repository).bulkSave(any());
+
+        List<Booking> response = service.confirmGroup(group).collectList().block();
+
+        assertNotNull(response);
+        assertEquals(2, response.size());
+        response.forEach(booking -> assertEquals(BookingStatus.BOOKED, booking.getStatus()));
+        verify(repository, times(1)).bulkSave(any());
+    }
+
+    @Test
+    public void confirmGroupShouldOverbookAllTheBookings() {
+        BookingGroup group = BookingGroup.builder()
+                .id("6303c736c2f14e77828504cb")
+                .bookings(List.of(bookingStub().pending(), bookingStub().setRoomNumber(238L).pending()))
+                .build();
+
+        doReturn(Mono.just(Boolean.FALSE)).when(roomNightService).reserveAll(any());
+        doAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0))).when(repository).bulkSave(any());
+
+        List<Booking> response = service.confirmGroup(group).collectList().block();
+
+        assertNotNull(response);
+        assertEquals(2, response.size());
+        response.forEach(booking -> assertEquals(BookingStatus.OVERBOOKED, booking.getStatus()));
+    }
+
     @Test
     public void cancelShouldWork() {
         Booking bookingStub = bookingStub();
 
         doReturn(Mono.just(bookingStub)).when(repository).save(any());
+        doReturn(Mono.empty()).when(roomNightService).release(any());
 
         Booking response = service.cancel(bookingStub).block();
 
@@ -5,14 +5,19 @@ import com.alten.booking.api.dto.RoomDTO;
 import com.alten.booking.business.exception.BusinessException;
 import com.alten.booking.business.exception.NotFoundException;
 import com.alten.booking.infrastructure.repository.entity.Booking;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Clock;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 
 import static com.alten.booking.stub.Stubs.bookingStub;
 import static com.alten.booking.stub.Stubs.validBookingRequestDTOStub;
@@ -23,11 +28,17 @@ import static org.mockito.Mockito.*;
 @ExtendWith(SpringExtension.class)
 public class BookingServiceValidatorTest {
 
-    @InjectMocks
     private BookingServiceValidator service;
     @Mock
     private RoomService roomService;
 
+    @BeforeEach
+    void initValidator() {
+        service = new BookingServiceValidator(roomService,
+                new BookingPolicy(new BookingPolicyProperties(), Clock.systemDefaultZone()),
+                new BookingMetrics(new SimpleMeterRegistry()));
+    }
+
     @Test
     public void validateHeadersShouldWork() {
         BookingRequestDTO response =
@@ -109,4 +120,58 @@ public class BookingServiceValidatorTest {
                 .isThrownBy(() -> service.validateRoomExistsAndDatesAreCorrect(wrongDates).block())
                 .withMessage("The stay can’t be reserved more than 30 days in advance!");
     }
+
+    @Test
+    public void validateRoomExistsAndCalendarIsCorrectShouldWork() {
+        doReturn(Mono.just(RoomDTO.builder().build())).when(roomService).findByRoomNumber(anyLong());
+
+        Boolean response = service.validateRoomExistsAndCalendarIsCorrect(237L, LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(32)).block();
+
+        assertNotNull(response);
+    }
+
+    @Test
+    public void calendarBeyondLastNightThrowsDateException() {
+        doReturn(Mono.just(RoomDTO.builder().build())).when(roomService).findByRoomNumber(anyLong());
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.validateRoomExistsAndCalendarIsCorrect(237L, LocalDate.now().plusDays(1),
+                        LocalDate.now().plusDays(33)).block())
+                .withMessage("The calendar can’t go beyond the last night that can be reserved!");
+    }
+
+    @Test
+    public void validateGroupShouldLookUpTheRoomsAtOnce() {
+        doReturn(Flux.just(RoomDTO.builder().roomNumber(237L).build(), RoomDTO.builder().roomNumber(238L).build()))
+                .when(roomService).findAllByRoomNumber(any());
+
+        List<Booking> response = service.validateGroup(List.of(bookingStub(), bookingStub().setRoomNumber(238L)))
+                .block();
+
+        assertNotNull(response);
+        verify(roomService, times(1)).findAllByRoomNumber(Set.of(237L, 238L));
+        verify(roomService, never()).findByRoomNumber(anyLong());
+    }
+
+    @Test
+    public void validateGroupOverlappingInARoomThrowsException() {
+        Booking first = bookingStub();
+        Booking second = bookingStub().setStartDate(first.getEndDate()).setEndDate(first.getEndDate().plusDays(1));
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.validateGroup(List.of(first, second)).block())
+                .withMessage("Bookings of room 237 overlap in the group!");
+        verify(roomService, never()).findAllByRoomNumber(any());
+    }
+
+    @Test
+    public void validateGroupRoomNotFoundThrowsException() {
+        doReturn(Flux.just(RoomDTO.builder().roomNumber(237L).build())).when(roomService).findAllByRoomNumber(any());
+
+        assertThatExceptionOfType(NotFoundException.class)
+                .isThrownBy(() -> service.validateGroup(List.of(bookingStub(), bookingStub().setRoomNumber(238L)))
+                        .block())
+                .withMessage("Room 238 not found!");
+    }
 }
@@ -0,0 +1,109 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static com.alten.booking.stub.Stubs.bookingStub;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class BookingStatusNotifierTest {
+
+    private static final String ID = "6303c736c2f14e77828504ca";
+
+    @Mock
+    private Broadcaster broadcaster;
+
+    private final Sinks.Many<String> messages = Sinks.many().multicast().directBestEffort();
+    private BookingStatusNotifier notifier;
+
+    @BeforeEach
+    void initNotifier() {
+        doReturn(messages.asFlux()).when(broadcaster).listen(anyString());
+        doReturn(Mono.empty()).when(broadcaster).publish(anyString(), anyString());
+        notifier = new BookingStatusNotifier(broadcaster, Duration.ofSeconds(10), Duration.ofSeconds(30));
+        notifier.listen();
+    }
+
+    @Test
+    public void publishShouldSignalTheAwaitingRequestsInProcess() {
+        StepVerifier.create(notifier.next(ID))
+                .then(() -> notifier.publish(bookingStub()).block())
+                .expectNext(ID)
+                .verifyComplete();
+        verify(broadcaster).publish(anyString(), anyString());
+    }
+
+    @Test
+    public void publishShouldIgnorePendingBookings() {
+        notifier.publish(bookingStub().pending()).block();
+
+        verify(broadcaster, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    public void nextShouldReceiveTheSignalsOfOtherInstances() {
+        StepVerifier.create(notifier.next(ID))
+                .then(() -> {
+                    messages.tryEmitNext("other-instance|6303bd67ef22d66c2ea11693");
+                    messages.tryEmitNext("other-instance|" + ID);
+                })
+                .expectNext(ID)
+                .verifyComplete();
+    }
+
+    @Test
+    public void nextShouldIgnoreItsOwnBroadcast() {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        notifier.publish(bookingStub()).block();
+        verify(broadcaster).publish(anyString(), message.capture());
+
+        StepVerifier.create(notifier.next(ID))
+                .then(() -> messages.tryEmitNext(message.getValue()))
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void nextShouldSignalEveryRequestAwaitingTheBooking() {
+        Mono<String> first = notifier.next(ID).cache();
+        Mono<String> second = notifier.next(ID).cache();
+        first.subscribe();
+        second.subscribe();
+
+        notifier.publish(bookingStub()).block();
+
+        assertEquals(ID, first.block(Duration.ofSeconds(1)));
+        assertEquals(ID, second.block(Duration.ofSeconds(1)));
+        assertEquals(0, notifier.awaitedBookings());
+    }
+
+    @Test
+    public void nextShouldForgetTheRequestsThatGaveUp() {
+        StepVerifier.create(notifier.next(ID))
+                .then(() -> assertEquals(1, notifier.awaitedBookings()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, notifier.awaitedBookings());
+    }
+
+    @Test
+    public void timeoutOfShouldBeBounded() {
+        assertEquals(Duration.ofSeconds(10), notifier.timeoutOf(null));
+        assertEquals(Duration.ofSeconds(5), notifier.timeoutOf(5L));
+        assertEquals(Duration.ofSeconds(30), notifier.timeoutOf(3600L));
+    }
+}
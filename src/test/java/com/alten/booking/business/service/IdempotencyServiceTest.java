@@ -0,0 +1,193 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.api.dto.BookingRequestDTO;
+import com.alten.booking.api.dto.BookingResponseDTO;
+import com.alten.booking.business.exception.BusinessException;
+import com.alten.booking.business.exception.ConflictException;
+import com.alten.booking.infrastructure.idempotency.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.alten.booking.stub.Stubs.bookingResponseDTOStub;
+import static com.alten.booking.stub.Stubs.validBookingRequestDTOStub;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class IdempotencyServiceTest {
+
+    private static final BookingRequestDTO REQUEST = validBookingRequestDTOStub();
+
+    @Mock
+    private IdempotencyStore store;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyService service;
+
+    @BeforeEach
+    void initService() {
+        doReturn(Mono.empty()).when(store).complete(anyString(), anyString(), any());
+        doReturn(Mono.empty()).when(store).release(anyString());
+        service = new IdempotencyService(store, objectMapper, Duration.ofHours(1), Duration.ofMillis(200),
+                Duration.ofMillis(20));
+    }
+
+    private Mono<BookingResponseDTO> command() {
+        return Mono.fromSupplier(() -> {
+            executions.incrementAndGet();
+            return bookingResponseDTOStub();
+        });
+    }
+
+    //Holds the key from another instance: the lock is the one it reserved, returned by the store until it expires.
+    private void holdKeyElsewhere(int polls) {
+        AtomicReference<String> lock = new AtomicReference<>();
+        AtomicInteger reads = new AtomicInteger();
+        doAnswer(invocation -> {
+            lock.compareAndSet(null, invocation.getArgument(1));
+            return Mono.just(reads.get() >= polls);
+        }).when(store).tryReserve(anyString(), anyString(), any());
+        doAnswer(invocation -> reads.incrementAndGet() > polls ? Mono.empty() : Mono.just(lock.get()))
+                .when(store).get(anyString());
+    }
+
+    @Test
+    public void executeWithoutKeyShouldRunTheCommand() {
+        BookingResponseDTO response = service.execute("jean", null, "create", REQUEST, this::command).block();
+
+        assertNotNull(response);
+        assertEquals(1, executions.get());
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    public void executeShouldStoreTheFirstResponse() {
+        doReturn(Mono.just(Boolean.TRUE)).when(store).tryReserve(anyString(), anyString(), any());
+
+        BookingResponseDTO response = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block();
+
+        assertNotNull(response);
+        assertEquals(1, executions.get());
+        verify(store).complete(eq("idempotency:jean:create:7c1f4a52"), anyString(), eq(Duration.ofHours(1)));
+    }
+
+    @Test
+    public void executeShouldReplayTheStoredResponse() {
+        doReturn(Mono.just(Boolean.TRUE)).when(store).tryReserve(anyString(), anyString(), any());
+        BookingResponseDTO first = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block();
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+        verify(store).complete(anyString(), stored.capture(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(store).tryReserve(anyString(), anyString(), any());
+        doReturn(Mono.just(stored.getValue())).when(store).get(anyString());
+
+        BookingResponseDTO response = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block();
+
+        assertNotNull(response);
+        assertEquals(first.getId(), response.getId());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void executeShouldCoalesceConcurrentDuplicates() throws Exception {
+        Sinks.One<BookingResponseDTO> inFlight = Sinks.one();
+        doReturn(Mono.just(Boolean.TRUE)).when(store).tryReserve(anyString(), anyString(), any());
+
+        Mono<BookingResponseDTO> first = service.execute("jean", "7c1f4a52", "create", REQUEST, () -> {
+            executions.incrementAndGet();
+            return inFlight.asMono();
+        });
+        Mono<BookingResponseDTO> second = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command);
+        CompletableFuture<BookingResponseDTO> both = Mono.zip(first, second, (a, b) -> b).toFuture();
+        inFlight.tryEmitValue(bookingResponseDTOStub());
+
+        assertNotNull(both.get(1, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        verify(store, times(1)).tryReserve(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void executeShouldReleaseTheKeyOfAFailedCommand() {
+        doReturn(Mono.just(Boolean.TRUE)).when(store).tryReserve(anyString(), anyString(), any());
+
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.execute("jean", "7c1f4a52", "create", REQUEST,
+                        () -> Mono.error(new BusinessException("Room not available for given dates!"))).block());
+        verify(store).release("idempotency:jean:create:7c1f4a52");
+        verify(store, never()).complete(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void executeShouldRunTheCommandReleasedByAnotherInstance() {
+        doReturn(Mono.just(Boolean.FALSE), Mono.just(Boolean.TRUE)).when(store).tryReserve(anyString(), anyString(), any());
+        doReturn(Mono.empty()).when(store).get(anyString());
+
+        BookingResponseDTO response = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block();
+
+        assertNotNull(response);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void executeShouldKeepPollingUntilTheLockOfAFailedInstanceExpires() {
+        //One more read than the lock ttl divided by the poll interval.
+        holdKeyElsewhere(11);
+
+        BookingResponseDTO response = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block();
+
+        assertNotNull(response);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void executeThrowsConflictWhileAnotherInstanceHoldsTheKey() {
+        holdKeyElsewhere(Integer.MAX_VALUE);
+
+        assertThatExceptionOfType(ConflictException.class)
+                .isThrownBy(() -> service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block())
+                .withMessage("A request with the same Idempotency-Key is still in progress!");
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void executeThrowsConflictWhenTheKeyWasUsedWithAnotherRequest() throws Exception {
+        BookingRequestDTO other = validBookingRequestDTOStub();
+        other.setRoomNumber(238L);
+        doReturn(Mono.just(Boolean.TRUE)).when(store).tryReserve(anyString(), anyString(), any());
+        service.execute("jean", "7c1f4a52", "create", other, this::command).block();
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+        verify(store).complete(anyString(), stored.capture(), any());
+        doReturn(Mono.just(Boolean.FALSE)).when(store).tryReserve(anyString(), anyString(), any());
+        doReturn(Mono.just(stored.getValue())).when(store).get(anyString());
+
+        assertThatExceptionOfType(ConflictException.class)
+                .isThrownBy(() -> service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block())
+                .withMessage("The Idempotency-Key was already used with another request!");
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void executeShouldRunTheCommandWhenTheStoreIsUnavailable() {
+        doReturn(Mono.error(new IllegalStateException("redis unavailable")))
+                .when(store).tryReserve(anyString(), anyString(), any());
+
+        BookingResponseDTO response = service.execute("jean", "7c1f4a52", "create", REQUEST, this::command).block();
+
+        assertNotNull(response);
+        assertEquals(1, executions.get());
+    }
+}
@@ -0,0 +1,157 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.ratelimit.BucketStore;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class RateLimiterTest {
+
+    @Mock
+    private BucketStore buckets;
+    @Mock
+    private Bucket bucket;
+    @Mock
+    private ConsumptionProbe probe;
+
+    @BeforeEach
+    void initBuckets() {
+        doReturn(bucket).when(buckets).resolve(anyString(), any());
+        doReturn(probe).when(bucket).tryConsumeAndReturnRemaining(anyLong());
+    }
+
+    private RateLimiter rateLimiter(boolean localEnabled, boolean failOpen) {
+        return new RateLimiter(buckets, localEnabled, 5, 50, Duration.ofMinutes(1), Duration.ofMillis(200), failOpen);
+    }
+
+    @Test
+    public void tryConsumeWithoutLocalTierShouldConsumeFromBucket() {
+        RateLimiter rateLimiter = rateLimiter(false, true);
+        doReturn(true).when(probe).isConsumed();
+        doReturn(9L).when(probe).getRemainingTokens();
+
+        rateLimiter.tryConsume("user").block();
+        RateLimitDecision response = rateLimiter.tryConsume("user").block();
+
+        assertNotNull(response);
+        assertTrue(response.isConsumed());
+        assertEquals(9L, response.getRemainingTokens());
+        verify(bucket, times(2)).tryConsumeAndReturnRemaining(1);
+    }
+
+    @Test
+    public void tryConsumeShouldNeverCallTheBucketOnANonBlockingThread() {
+        RateLimiter rateLimiter = rateLimiter(false, true);
+        AtomicBoolean calledOnNonBlockingThread = new AtomicBoolean();
+        doAnswer(invocation -> {
+            calledOnNonBlockingThread.set(Schedulers.isInNonBlockingThread());
+            return probe;
+        }).when(bucket).tryConsumeAndReturnRemaining(anyLong());
+        doReturn(true).when(probe).isConsumed();
+
+        //The parallel scheduler threads are non blocking, like the reactor-netty event loops.
+        RateLimitDecision response = Mono.defer(() -> rateLimiter.tryConsume("user"))
+                .subscribeOn(Schedulers.parallel())
+                .block();
+
+        assertNotNull(response);
+        assertTrue(response.isConsumed());
+        verify(bucket).tryConsumeAndReturnRemaining(1);
+        assertFalse(calledOnNonBlockingThread.get());
+    }
+
+    @Test
+    public void tryConsumeTimeoutShouldFailOpen() {
+        RateLimiter rateLimiter = rateLimiter(false, true);
+        doAnswer(invocation -> {
+            Thread.sleep(1000);
+            return probe;
+        }).when(bucket).tryConsumeAndReturnRemaining(anyLong());
+
+        RateLimitDecision response = rateLimiter.tryConsume("user").block();
+
+        assertNotNull(response);
+        assertTrue(response.isConsumed());
+        assertEquals(-1L, response.getRemainingTokens());
+    }
+
+    @Test
+    public void tryConsumeTimeoutShouldFailClosed() {
+        RateLimiter rateLimiter = rateLimiter(false, false);
+        doThrow(new IllegalStateException("redis unavailable")).when(bucket).tryConsumeAndReturnRemaining(anyLong());
+
+        RateLimitDecision response = rateLimiter.tryConsume("user").block();
+
+        assertNotNull(response);
+        assertFalse(response.isConsumed());
+    }
+
+    @Test
+    public void tryConsumeWithLocalTierShouldReserveAGrant() {
+        RateLimiter rateLimiter = rateLimiter(true, true);
+        doReturn(true).when(probe).isConsumed();
+        doReturn(5L).when(probe).getRemainingTokens();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryConsume("user").block().isConsumed());
+        }
+        RateLimitDecision response = rateLimiter.tryConsume("user").block();
+
+        assertNotNull(response);
+        assertTrue(response.isConsumed());
+        assertEquals(9L, response.getRemainingTokens());
+        verify(bucket, times(2)).tryConsumeAndReturnRemaining(5);
+    }
+
+    @Test
+    public void tryConsumeWithLocalTierShouldTakeWhatIsLeft() {
+        RateLimiter rateLimiter = rateLimiter(true, true);
+        doReturn(false).when(probe).isConsumed();
+        doReturn(2L).when(bucket).tryConsumeAsMuchAsPossible(5);
+
+        assertTrue(rateLimiter.tryConsume("user").block().isConsumed());
+        assertTrue(rateLimiter.tryConsume("user").block().isConsumed());
+
+        verify(bucket, times(1)).tryConsumeAndReturnRemaining(5);
+    }
+
+    @Test
+    public void expiredGrantShouldGiveItsTokensBack() {
+        RateLimiter rateLimiter = new RateLimiter(buckets, true, 5, 50, Duration.ofMillis(50), Duration.ofMillis(200),
+                true);
+        doReturn(true).when(probe).isConsumed();
+        doReturn(5L).when(probe).getRemainingTokens();
+
+        assertTrue(rateLimiter.tryConsume("user").block().isConsumed());
+        assertTrue(rateLimiter.tryConsume("user").block().isConsumed());
+
+        verify(bucket, timeout(5000)).addTokens(3);
+    }
+
+    @Test
+    public void tryConsumeWithLocalTierShouldRejectWhenBucketIsEmpty() {
+        RateLimiter rateLimiter = rateLimiter(true, true);
+        doReturn(false).when(probe).isConsumed();
+        doReturn(30_000_000_000L).when(probe).getNanosToWaitForRefill();
+        doReturn(0L).when(bucket).tryConsumeAsMuchAsPossible(5);
+
+        RateLimitDecision response = rateLimiter.tryConsume("user").block();
+
+        assertNotNull(response);
+        assertFalse(response.isConsumed());
+        assertEquals(30_000_000_000L, response.getNanosToWaitForRefill());
+    }
+}
@@ -0,0 +1,116 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.api.dto.RoomAvailabilityDTO;
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static com.alten.booking.stub.Stubs.bookingStub;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class RoomAvailabilityNotifierTest {
+
+    @Mock
+    private Broadcaster broadcaster;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Sinks.Many<String> messages = Sinks.many().multicast().directBestEffort();
+    private RoomAvailabilityNotifier notifier;
+
+    @BeforeEach
+    void initNotifier() {
+        doReturn(messages.asFlux()).when(broadcaster).listen(anyString());
+        doReturn(Mono.empty()).when(broadcaster).publish(anyString(), anyString());
+        notifier = new RoomAvailabilityNotifier(broadcaster, objectMapper, 2);
+        notifier.listen();
+    }
+
+    @Test
+    public void publishShouldBroadcastBookedAndCancelled() throws Exception {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+
+        notifier.publish(bookingStub()).block();
+        notifier.publish(bookingStub().cancelled()).block();
+        notifier.publish(bookingStub().pending()).block();
+
+        verify(broadcaster, times(2)).publish(anyString(), message.capture());
+        RoomAvailabilityDTO booked = objectMapper.readValue(message.getAllValues().get(0), RoomAvailabilityDTO.class);
+        assertEquals(237L, booked.getRoomNumber());
+        assertFalse(booked.getAvailable());
+        assertTrue(objectMapper.readValue(message.getAllValues().get(1), RoomAvailabilityDTO.class).getAvailable());
+    }
+
+    @Test
+    public void publishShouldReleaseThePreviousStayOfAMovedBooking() throws Exception {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        Booking moved = bookingStub().keepPreviousStay()
+                .setStartDate(bookingStub().getStartDate().plusDays(1))
+                .setEndDate(bookingStub().getEndDate().plusDays(1));
+
+        notifier.publish(moved).block();
+
+        verify(broadcaster, times(2)).publish(anyString(), message.capture());
+        RoomAvailabilityDTO released = objectMapper.readValue(message.getAllValues().get(0), RoomAvailabilityDTO.class);
+        assertEquals(bookingStub().getStartDate(), released.getStartDate());
+        assertTrue(released.getAvailable());
+        RoomAvailabilityDTO booked = objectMapper.readValue(message.getAllValues().get(1), RoomAvailabilityDTO.class);
+        assertEquals(moved.getStartDate(), booked.getStartDate());
+        assertFalse(booked.getAvailable());
+    }
+
+    @Test
+    public void changesShouldFanOutTheRoomChanges() {
+        StepVerifier.create(notifier.changes(237L).take(1))
+                .then(() -> {
+                    messages.tryEmitNext(change(238L));
+                    messages.tryEmitNext(change(237L));
+                })
+                .assertNext(change -> assertEquals(237L, change.getRoomNumber()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void changesShouldDropOldestForSlowClients() {
+        StepVerifier.create(notifier.changes(237L), 0)
+                .then(() -> {
+                    for (long day = 0; day < 5; day++) {
+                        messages.tryEmitNext(change(237L, day));
+                    }
+                })
+                .thenRequest(2)
+                .assertNext(change -> assertEquals(bookingStub().getStartDate().plusDays(3), change.getStartDate()))
+                .assertNext(change -> assertEquals(bookingStub().getStartDate().plusDays(4), change.getStartDate()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private String change(Long roomNumber) {
+        return change(roomNumber, 0);
+    }
+
+    private String change(Long roomNumber, long day) {
+        try {
+            return objectMapper.writeValueAsString(RoomAvailabilityDTO.builder()
+                    .roomNumber(roomNumber)
+                    .startDate(bookingStub().getStartDate().plusDays(day))
+                    .endDate(bookingStub().getEndDate().plusDays(day))
+                    .available(Boolean.FALSE)
+                    .build());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class RoomCatalogCacheTest {
+
+    @Mock
+    private RoomRepository repository;
+    @Mock
+    private Broadcaster broadcaster;
+
+    private RoomCatalogCache cache;
+
+    @BeforeEach
+    void initCache() {
+        cache = new RoomCatalogCache(repository, broadcaster, new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+    }
+
+    @Test
+    public void findByRoomNumberShouldHitCache() {
+        doReturn(Mono.just(Room.builder().roomNumber(237L).build())).when(repository).findByRoomNumber(anyLong());
+
+        cache.findByRoomNumber(237L).block();
+        Room response = cache.findByRoomNumber(237L).block();
+
+        assertNotNull(response);
+        verify(repository, times(1)).findByRoomNumber(237L);
+    }
+
+    @Test
+    public void existsByRoomNumberShouldHitCache() {
+        doReturn(Mono.just(Room.builder().roomNumber(237L).build())).when(repository).findByRoomNumber(anyLong());
+
+        cache.findByRoomNumber(237L).block();
+        Boolean response = cache.existsByRoomNumber(237L).block();
+
+        assertNotNull(response);
+        assertTrue(response);
+        verify(repository, never()).existsByRoomNumber(anyLong());
+    }
+
+    @Test
+    public void invalidateShouldEvictAndBroadcast() {
+        doReturn(Mono.just(Room.builder().roomNumber(237L).build())).when(repository).findByRoomNumber(anyLong());
+        doReturn(Mono.empty()).when(broadcaster).publish(anyString(), anyString());
+
+        cache.findByRoomNumber(237L).block();
+        cache.invalidate(237L).block();
+        cache.findByRoomNumber(237L).block();
+
+        verify(repository, times(2)).findByRoomNumber(237L);
+        verify(broadcaster).publish(anyString(), eq("237"));
+    }
+
+    @Test
+    public void findByRoomNumberShouldNotKeepARoomEvictedWhileLoading() {
+        Room room = Room.builder().roomNumber(237L).build();
+        doReturn(Mono.empty()).when(broadcaster).publish(anyString(), anyString());
+        doReturn(Mono.defer(() -> cache.invalidate(237L).thenReturn(room)), Mono.just(room))
+                .when(repository).findByRoomNumber(anyLong());
+
+        cache.findByRoomNumber(237L).block();
+        cache.findByRoomNumber(237L).block();
+        cache.findByRoomNumber(237L).block();
+
+        verify(repository, times(2)).findByRoomNumber(237L);
+    }
+}
@@ -0,0 +1,107 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.api.dto.RoomImportResultDTO;
+import com.alten.booking.business.mapper.RoomMapper;
+import com.alten.booking.infrastructure.repository.RoomRepository;
+import com.alten.booking.infrastructure.repository.RoomUpsert;
+import com.alten.booking.infrastructure.repository.entity.Room;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validation;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.alten.booking.api.dto.RoomImportResultDTO.Status.CREATED;
+import static com.alten.booking.api.dto.RoomImportResultDTO.Status.FAILED;
+import static com.alten.booking.api.dto.RoomImportResultDTO.Status.UPDATED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class RoomImportServiceTest {
+
+    private static final String ROOM = "{\"roomNumber\": %d, \"bedrooms\": 1, \"beds\": 1, \"guests\": 2, "
+            + "\"suites\": 0, \"bathrooms\": 1}";
+
+    @Mock
+    private RoomRepository repository;
+    @Mock
+    private RoomCatalogCache cache;
+
+    private RoomImportService service;
+
+    @BeforeEach
+    void initService() {
+        service = new RoomImportService(repository, Mappers.getMapper(RoomMapper.class), cache, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+        doReturn(Mono.empty()).when(cache).invalidate(any());
+    }
+
+    @Test
+    public void importRoomsShouldUpsertInBatches() {
+        doAnswer(invocation -> Flux.fromIterable(invocation.<List<Room>>getArgument(0))
+                .map(room -> new RoomUpsert(room.getRoomNumber(), room.getRoomNumber() % 2 == 1, null)))
+                .when(repository).bulkUpsert(anyList());
+
+        List<RoomImportResultDTO> response = service.importRooms(Flux.just(
+                        String.format(ROOM, 1), String.format(ROOM, 2), String.format(ROOM, 3)))
+                .collectList()
+                .block();
+
+        assertNotNull(response);
+        assertEquals(List.of(CREATED, UPDATED, CREATED),
+                response.stream().map(RoomImportResultDTO::getStatus).collect(Collectors.toList()));
+        assertEquals(3L, response.get(2).getLine());
+        verify(repository, times(2)).bulkUpsert(anyList());
+        verify(cache).invalidate(1L, 2L);
+        verify(cache).invalidate(3L);
+    }
+
+    @Test
+    public void importRoomsShouldReportTheFailedLines() {
+        doReturn(Flux.just(new RoomUpsert(1L, false, "Duplicate key roomNumber: 1")))
+                .when(repository).bulkUpsert(anyList());
+
+        List<RoomImportResultDTO> response = service.importRooms(Flux.just(
+                        String.format(ROOM, 1), "", "{\"roomNumber\": 2}", "not a room"))
+                .collectList()
+                .block();
+
+        assertNotNull(response);
+        assertEquals(3, response.size());
+        assertEquals(FAILED, response.get(0).getStatus());
+        assertEquals("Duplicate key roomNumber: 1", response.get(0).getError());
+        assertEquals(3L, response.get(1).getLine());
+        assertEquals(2L, response.get(1).getRoomNumber());
+        assertEquals(FAILED, response.get(1).getStatus());
+        assertEquals(4L, response.get(2).getLine());
+        assertEquals(FAILED, response.get(2).getStatus());
+        verify(repository, times(2)).bulkUpsert(anyList());
+        verify(cache, times(2)).invalidate();
+    }
+
+    @Test
+    public void importRoomsShouldReportANullLine() {
+        doReturn(Flux.just(new RoomUpsert(2L, true, null))).when(repository).bulkUpsert(anyList());
+
+        List<RoomImportResultDTO> response = service.importRooms(Flux.just("null", String.format(ROOM, 2)))
+                .collectList()
+                .block();
+
+        assertNotNull(response);
+        assertEquals(List.of(FAILED, CREATED),
+                response.stream().map(RoomImportResultDTO::getStatus).collect(Collectors.toList()));
+        assertEquals("Malformed room: null", response.get(0).getError());
+    }
+}
@@ -0,0 +1,154 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.RoomNightRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.RoomNight;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.alten.booking.stub.Stubs.bookingStub;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class RoomNightServiceTest {
+
+    @InjectMocks
+    private RoomNightService service;
+    @Mock
+    private RoomNightRepository repository;
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Test
+    public void reserveNewBookingShouldWork() {
+        doReturn(Flux.empty()).when(repository).insert(anyIterable());
+
+        Boolean response = service.reserve(bookingStub(), true).block();
+
+        assertNotNull(response);
+        assertTrue(response);
+        verify(repository, never()).findAllByBookingId(any());
+    }
+
+    @Test
+    public void reserveNightAlreadyReservedShouldFail() {
+        doReturn(Flux.error(new DuplicateKeyException("E11000"))).when(repository).insert(anyIterable());
+        doReturn(Mono.just(1L)).when(repository).deleteByBookingIdAndRoomNumberAndNightIn(any(), any(), any());
+
+        Boolean response = service.reserve(bookingStub(), true).block();
+
+        assertNotNull(response);
+        assertFalse(response);
+        verify(repository, times(2)).deleteByBookingIdAndRoomNumberAndNightIn(any(), any(), any());
+    }
+
+    @Test
+    public void reserveRedeliveredNewBookingShouldTakeBackItsNights() {
+        doReturn(Flux.error(new DuplicateKeyException("E11000")), Flux.empty()).when(repository).insert(anyIterable());
+        doReturn(Mono.just(3L)).when(repository).deleteByBookingIdAndRoomNumberAndNightIn(any(), any(), any());
+
+        Boolean response = service.reserve(bookingStub(), true).block();
+
+        assertNotNull(response);
+        assertTrue(response);
+        verify(repository, times(2)).insert(anyIterable());
+    }
+
+    @Test
+    public void reserveUpdatedBookingShouldKeepStaleNights() {
+        Booking booking = bookingStub();
+
+        doReturn(Flux.just(staleNightOf(booking))).when(repository).findAllByBookingId(anyString());
+        doReturn(Flux.empty()).when(repository).insert(anyIterable());
+
+        Boolean response = service.reserve(booking, false).block();
+
+        assertNotNull(response);
+        assertTrue(response);
+        verify(repository).insert(argThat((List<RoomNight> nights) -> nights.size() == 3));
+        verify(repository, never()).deleteAll(anyIterable());
+    }
+
+    @Test
+    public void releaseStaleShouldDeleteTheNightsOutsideTheStay() {
+        Booking booking = bookingStub();
+        RoomNight stale = staleNightOf(booking);
+        RoomNight kept = RoomNight.builder()
+                .roomNumber(booking.getRoomNumber())
+                .night(booking.getStartDate())
+                .bookingId(booking.getId())
+                .build();
+
+        doReturn(Flux.just(stale, kept)).when(repository).findAllByBookingId(anyString());
+        doReturn(Mono.empty()).when(repository).deleteAll(anyIterable());
+
+        service.releaseStale(booking).block();
+
+        verify(repository).deleteAll(List.of(stale));
+    }
+
+    @Test
+    public void releaseShouldWork() {
+        doReturn(Mono.just(3L)).when(repository).deleteByBookingId(anyString());
+
+        service.release(bookingStub()).block();
+
+        verify(repository).deleteByBookingId(bookingStub().getId());
+    }
+
+    @Test
+    public void reserveBookedNightsShouldInsertTheMissingNightsOfEveryBooking() {
+        doReturn(Flux.just(bookingStub(), bookingStub().setRoomNumber(238L)))
+                .when(bookingRepository).findAllByStatusAndEndDateGreaterThanEqual(any(), any());
+        doReturn(Mono.just(1L)).when(repository).insertMissing(anyList());
+
+        service.reserveBookedNights();
+
+        verify(repository, timeout(5000).times(2)).insertMissing(argThat(nights -> nights.size() == 3));
+        verify(repository, never()).insert(anyIterable());
+    }
+
+    @Test
+    public void reserveAllShouldInsertTheNightsOfAllTheBookingsAtOnce() {
+        doReturn(Flux.empty()).when(repository).insert(anyIterable());
+
+        Boolean response = service.reserveAll(List.of(bookingStub(), bookingStub().setRoomNumber(238L)
+                .setId("6303c736c2f14e77828504cb"))).block();
+
+        assertNotNull(response);
+        assertTrue(response);
+        verify(repository, times(1)).insert(argThat((List<RoomNight> nights) -> nights.size() == 6));
+    }
+
+    @Test
+    public void reserveAllShouldReleaseTheNightsOfAllTheBookings() {
+        doReturn(Flux.error(new DuplicateKeyException("E11000"))).when(repository).insert(anyIterable());
+        doReturn(Mono.just(2L)).when(repository).deleteByBookingIdIn(any());
+
+        Boolean response = service.reserveAll(List.of(bookingStub(), bookingStub().setRoomNumber(238L)
+                .setId("6303c736c2f14e77828504cb"))).block();
+
+        assertNotNull(response);
+        assertFalse(response);
+        verify(repository, times(2)).deleteByBookingIdIn(List.of("6303c736c2f14e77828504ca",
+                "6303c736c2f14e77828504cb"));
+    }
+
+    private static RoomNight staleNightOf(Booking booking) {
+        return RoomNight.builder()
+                .roomNumber(booking.getRoomNumber())
+                .night(booking.getStartDate().minusDays(1))
+                .bookingId(booking.getId())
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.alten.booking.stub.Stubs.bookingStub;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(SpringExtension.class)
+public class RoomOccupancyIndexTest {
+
+    @Mock
+    private BookingRepository repository;
+
+    private RoomOccupancyIndex index;
+
+    @BeforeEach
+    void initIndex() {
+        index = new RoomOccupancyIndex(repository, true, Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void coldIndexShouldNotAnswer() {
+        assertTrue(index.isAvailable(bookingStub()).isEmpty());
+    }
+
+    @Test
+    public void loadedBookingShouldConflict() {
+        Booking booked = bookingStub();
+        doReturn(Flux.just(booked)).when(repository).findAllByStatusAndEndDateGreaterThanEqual(any(), any());
+
+        index.rebuild().block();
+
+        Booking other = bookingStub().setId(null).setStartDate(booked.getEndDate()).setEndDate(booked.getEndDate().plusDays(1));
+        assertEquals(Optional.of(Boolean.FALSE), index.isAvailable(other));
+    }
+
+    @Test
+    public void bookingShouldNotConflictWithItself() {
+        Booking booked = bookingStub();
+        doReturn(Flux.just(booked)).when(repository).findAllByStatusAndEndDateGreaterThanEqual(any(), any());
+
+        index.rebuild().block();
+
+        Booking moved = bookingStub().setStartDate(booked.getStartDate().plusDays(1)).setEndDate(booked.getEndDate().plusDays(1));
+        assertEquals(Optional.of(Boolean.TRUE), index.isAvailable(moved));
+    }
+
+    @Test
+    public void cancelledBookingShouldReleaseNights() {
+        Booking booked = bookingStub();
+        doReturn(Flux.just(booked)).when(repository).findAllByStatusAndEndDateGreaterThanEqual(any(), any());
+
+        index.rebuild().block();
+        index.apply(bookingStub().cancelled());
+
+        assertEquals(Optional.of(Boolean.TRUE), index.isAvailable(bookingStub().setId(null)));
+    }
+
+    @Test
+    public void appliedBookingShouldConflict() {
+        doReturn(Flux.empty()).when(repository).findAllByStatusAndEndDateGreaterThanEqual(any(), any());
+
+        index.rebuild().block();
+        assertEquals(Optional.of(Boolean.TRUE), index.isAvailable(bookingStub().setId(null)));
+
+        index.apply(bookingStub());
+        assertEquals(Optional.of(Boolean.FALSE), index.isAvailable(bookingStub().setId(null)));
+    }
+
+    @Test
+    public void bookingAppliedDuringRebuildShouldBeKept() {
+        doReturn(Flux.defer(() -> {
+            index.apply(bookingStub());
+            return Flux.empty();
+        })).when(repository).findAllByStatusAndEndDateGreaterThanEqual(any(), any());
+
+        index.rebuild().block();
+
+        assertEquals(Optional.of(Boolean.FALSE), index.isAvailable(bookingStub().setId(null)));
+    }
+}
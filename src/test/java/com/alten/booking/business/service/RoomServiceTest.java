@@ -16,6 +16,8 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.*;
@@ -29,12 +31,15 @@ public class RoomServiceTest {
     private RoomRepository repository;
     @Spy
     private RoomMapper mapper = Mappers.getMapper(RoomMapper.class);
+    @Mock
+    private RoomCatalogCache cache;
 
     @Test
     public void createRoomShouldWork() {
         Room stub = Room.builder().build();
-        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsByRoomNumber(anyLong());
+        doReturn(Mono.just(Boolean.FALSE)).when(cache).existsByRoomNumber(anyLong());
         doReturn(Mono.just(stub)).when(repository).save(any());
+        doReturn(Mono.empty()).when(cache).invalidate(any());
 
         RoomDTO response = service.createRoom(RoomDTO.builder().roomNumber(237L).build()).block();
 
@@ -43,7 +48,7 @@ public class RoomServiceTest {
 
     @Test
     public void createRoomThrowsException() {
-        doReturn(Mono.just(Boolean.TRUE)).when(repository).existsByRoomNumber(anyLong());
+        doReturn(Mono.just(Boolean.TRUE)).when(cache).existsByRoomNumber(anyLong());
 
         assertThatExceptionOfType(BusinessException.class)
                 .isThrownBy(() -> service.createRoom(RoomDTO.builder().roomNumber(237L).build()).block())
@@ -55,6 +60,7 @@ public class RoomServiceTest {
         Room stub = Room.builder().build();
         doReturn(Mono.just(stub)).when(repository).findById(anyString());
         doReturn(Mono.just(stub)).when(repository).save(any());
+        doReturn(Mono.empty()).when(cache).invalidate(any());
 
         RoomDTO response = service.updateRoom("123", RoomDTO.builder().build()).block();
 
@@ -72,7 +78,7 @@ public class RoomServiceTest {
 
     @Test
     public void findByRoomNumberShouldWork() {
-        doReturn(Mono.just(Room.builder().build())).when(repository).findByRoomNumber(anyLong());
+        doReturn(Mono.just(Room.builder().build())).when(cache).findByRoomNumber(anyLong());
 
         RoomDTO response = service.findByRoomNumber(anyLong()).block();
 
@@ -81,7 +87,7 @@ public class RoomServiceTest {
 
     @Test
     public void findByRoomNumberThrowsNotFound() {
-        doReturn(Mono.empty()).when(repository).findByRoomNumber(anyLong());
+        doReturn(Mono.empty()).when(cache).findByRoomNumber(anyLong());
 
         assertThatExceptionOfType(NotFoundException.class)
                 .isThrownBy(() -> service.findByRoomNumber(232L).block());
@@ -95,4 +101,22 @@ public class RoomServiceTest {
 
         assertNotNull(response);
     }
+
+    @Test
+    public void findAllAvailableShouldWork() {
+        doReturn(Flux.just(Room.builder().build())).when(repository).findAllAvailable(any(), any(), any(), any());
+
+        RoomDTO response = service.findAllAvailable(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), 2L, null)
+                .blockFirst();
+
+        assertNotNull(response);
+    }
+
+    @Test
+    public void findAllAvailableThrowsDateException() {
+        assertThatExceptionOfType(BusinessException.class)
+                .isThrownBy(() -> service.findAllAvailable(LocalDate.now().plusDays(2), LocalDate.now().plusDays(1), null, null)
+                        .blockFirst())
+                .withMessage("End date should be after start date");
+    }
 }
@@ -0,0 +1,102 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.alten.booking.stub.Stubs.bookingStub;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomStaysTest {
+
+    private final RoomStays stays = new RoomStays();
+
+    @Test
+    public void decideShouldBookAFreeStay() {
+        Booking response = stays.decide(bookingStub().pending(), LocalDate.now());
+
+        assertEquals(BookingStatus.BOOKED, response.getStatus());
+        assertEquals(1, stays.getStays().size());
+    }
+
+    @Test
+    public void decideShouldOverbookANewBookingOnSeededNights() {
+        RoomStays seeded = RoomStays.of(List.of(bookingStub()));
+
+        Booking response = seeded.decide(bookingStub().setId(null).pending(), LocalDate.now());
+
+        assertEquals(BookingStatus.OVERBOOKED, response.getStatus());
+        assertEquals(1, seeded.getStays().size());
+    }
+
+    @Test
+    public void decideShouldOverbookANewBookingOnBookedNights() {
+        stays.decide(bookingStub().pending(), LocalDate.now());
+
+        Booking response = stays.decide(bookingStub().setId(null).pending(), LocalDate.now());
+
+        assertEquals(BookingStatus.OVERBOOKED, response.getStatus());
+        assertNotNull(response.getId());
+        assertEquals(1, stays.getStays().size());
+    }
+
+    @Test
+    public void decideShouldDecideARedeliveredBookingTheSameWay() {
+        stays.decide(bookingStub().pending(), LocalDate.now());
+
+        Booking response = stays.decide(bookingStub().pending(), LocalDate.now());
+
+        assertEquals(BookingStatus.BOOKED, response.getStatus());
+        assertEquals(1, stays.getStays().size());
+    }
+
+    @Test
+    public void decideShouldRejectAMoveToAnotherRoom() {
+        Booking booked = bookingStub();
+        RoomStays previousRoom = new RoomStays();
+        previousRoom.decide(booked.pending(), LocalDate.now());
+
+        Booking moved = bookingStub().keepPreviousStay().setRoomNumber(238L);
+
+        assertNull(stays.decide(moved, LocalDate.now()));
+        assertTrue(stays.getStays().isEmpty());
+        assertEquals(1, previousRoom.getStays().size());
+    }
+
+    @Test
+    public void decideShouldRejectAnUpdateOnBookedNights() {
+        Booking booked = bookingStub();
+        stays.decide(booked.pending(), LocalDate.now());
+        Booking other = bookingStub().setId("6303bd67ef22d66c2ea11693")
+                .setStartDate(booked.getEndDate().plusDays(1))
+                .setEndDate(booked.getEndDate().plusDays(2));
+        stays.decide(other.pending(), LocalDate.now());
+
+        Booking response = stays.decide(other.booked().setStartDate(booked.getStartDate()), LocalDate.now());
+
+        assertNull(response);
+        assertFalse(stays.isFree(booked.getEndDate().plusDays(1), booked.getEndDate().plusDays(1), null));
+    }
+
+    @Test
+    public void decideShouldReleaseCancelledStays() {
+        stays.decide(bookingStub().pending(), LocalDate.now());
+
+        Booking response = stays.decide(bookingStub().cancelled(), LocalDate.now());
+
+        assertEquals(BookingStatus.CANCELLED, response.getStatus());
+        assertTrue(stays.getStays().isEmpty());
+    }
+
+    @Test
+    public void decideShouldForgetPastStays() {
+        stays.decide(bookingStub().pending(), LocalDate.now());
+
+        stays.decide(bookingStub().setId("6303bd67ef22d66c2ea11693").cancelled(), LocalDate.now().plusDays(30));
+
+        assertTrue(stays.getStays().isEmpty());
+    }
+}
@@ -0,0 +1,201 @@
+package com.alten.booking.business.service;
+
+import com.alten.booking.infrastructure.messaging.broadcast.Broadcaster;
+import com.alten.booking.infrastructure.repository.BookingRepository;
+import com.alten.booking.infrastructure.repository.UserBookingsRepository;
+import com.alten.booking.infrastructure.repository.entity.Booking;
+import com.alten.booking.infrastructure.repository.entity.BookingStatus;
+import com.alten.booking.infrastructure.repository.entity.UserBookings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class UserBookingsServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-01-10T12:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDate TODAY = LocalDate.now(CLOCK);
+    private static final LocalDateTime NOW = LocalDateTime.now(CLOCK);
+
+    @Mock
+    private UserBookingsRepository repository;
+    @Mock
+    private BookingRepository bookingRepository;
+    @Mock
+    private Broadcaster broadcaster;
+
+    private UserBookingsService service;
+
+    @BeforeEach
+    void initService() {
+        service = new UserBookingsService(repository, bookingRepository, broadcaster, CLOCK, new SimpleMeterRegistry(),
+                true, Duration.ofMinutes(1), 100);
+        doReturn(Mono.empty()).when(broadcaster).publish(anyString(), anyString());
+        doReturn(Mono.empty()).when(repository).putBooking(anyString(), any(), any());
+    }
+
+    @Test
+    public void findActiveByUsernameShouldHitCache() {
+        doReturn(Mono.just(userBookings(item("2", TODAY.plusDays(3)), item("1", TODAY.plusDays(1)))))
+                .when(repository).findById(anyString());
+
+        service.findActiveByUsername("jean").block();
+        List<UserBookings.Item> response = service.findActiveByUsername("jean").block();
+
+        assertNotNull(response);
+        assertEquals(List.of("1", "2"), List.of(response.get(0).getBookingId(), response.get(1).getBookingId()));
+        verify(repository, times(1)).findById("jean");
+    }
+
+    @Test
+    public void findActiveByUsernameShouldLeaveEndedStaysOut() {
+        doReturn(Mono.just(userBookings(item("1", TODAY.minusDays(3)), item("2", TODAY))))
+                .when(repository).findById(anyString());
+
+        List<UserBookings.Item> response = service.findActiveByUsername("jean").block();
+
+        assertNotNull(response);
+        assertEquals(1, response.size());
+        assertEquals("2", response.get(0).getBookingId());
+    }
+
+    @Test
+    public void findActiveByUsernameShouldLeaveCancelledBookingsOut() {
+        UserBookings.Item cancelled = item("1", TODAY.plusDays(1)).toBuilder().status(BookingStatus.CANCELLED).build();
+        doReturn(Mono.just(userBookings(cancelled, item("2", TODAY.plusDays(2))))).when(repository).findById(anyString());
+
+        List<UserBookings.Item> response = service.findActiveByUsername("jean").block();
+
+        assertNotNull(response);
+        assertEquals(List.of("2"), List.of(response.get(0).getBookingId()));
+    }
+
+    @Test
+    public void findActiveByUsernameWithoutDocumentShouldBeEmpty() {
+        doReturn(Mono.empty()).when(repository).findById(anyString());
+
+        List<UserBookings.Item> response = service.findActiveByUsername("jean").block();
+
+        assertNotNull(response);
+        assertTrue(response.isEmpty());
+    }
+
+    @Test
+    public void applyBookedShouldPutAndEvict() {
+        doReturn(Mono.just(userBookings())).when(repository).findById(anyString());
+        service.findActiveByUsername("jean").block();
+
+        service.apply(booking(BookingStatus.BOOKED, TODAY.plusDays(2))).block();
+        service.findActiveByUsername("jean").block();
+
+        verify(repository).putBooking(eq("jean"), argThat(item -> "1".equals(item.getBookingId())
+                && NOW.equals(item.getUpdatedDate())), eq(TODAY));
+        verify(repository, times(2)).findById("jean");
+        verify(broadcaster).publish(anyString(), eq("jean"));
+    }
+
+    @Test
+    public void applyCancelledShouldPutTheCancelledVersion() {
+        service.apply(booking(BookingStatus.CANCELLED, TODAY.plusDays(2))).block();
+
+        verify(repository).putBooking(eq("jean"), argThat(item -> BookingStatus.CANCELLED == item.getStatus()
+                && NOW.equals(item.getUpdatedDate())), eq(TODAY));
+    }
+
+    @Test
+    public void applyOverbookedShouldPutTheOverbookedVersion() {
+        service.apply(booking(BookingStatus.OVERBOOKED, TODAY.plusDays(2))).block();
+
+        verify(repository).putBooking(eq("jean"), argThat(item -> BookingStatus.OVERBOOKED == item.getStatus()),
+                eq(TODAY));
+    }
+
+    @Test
+    public void applyPendingShouldDoNothing() {
+        service.apply(booking(BookingStatus.PENDING, TODAY.plusDays(2))).block();
+
+        verifyNoInteractions(repository, broadcaster);
+    }
+
+    @Test
+    public void applyShouldSucceedWhenBroadcastFails() {
+        doReturn(Mono.error(new IllegalStateException("redis down")))
+                .when(broadcaster).publish(anyString(), anyString());
+
+        service.apply(booking(BookingStatus.BOOKED, TODAY.plusDays(2))).block();
+
+        verify(repository).putBooking(eq("jean"), any(), eq(TODAY));
+    }
+
+    @Test
+    public void rebuildShouldPutTheBookedBookingsAndMarkTheReadModel() {
+        doReturn(Mono.just(Boolean.FALSE)).when(repository).existsById(UserBookings.REBUILT_MARKER);
+        doReturn(Flux.just(booking(BookingStatus.BOOKED, TODAY.plusDays(2))))
+                .when(bookingRepository).findAllByStatusAndEndDateGreaterThanEqual(BookingStatus.BOOKED, TODAY);
+        doAnswer(invocation -> Mono.just(invocation.getArgument(0))).when(repository).save(any());
+
+        service.rebuild();
+
+        verify(repository, timeout(5000)).save(argThat(document ->
+                UserBookings.REBUILT_MARKER.equals(document.getUsername())));
+        verify(repository).putBooking(eq("jean"), argThat(item -> "1".equals(item.getBookingId())), eq(TODAY));
+    }
+
+    @Test
+    public void rebuildShouldRunOnlyOnce() {
+        doReturn(Mono.just(Boolean.TRUE)).when(repository).existsById(UserBookings.REBUILT_MARKER);
+
+        service.rebuild();
+
+        verify(repository, timeout(5000)).existsById(UserBookings.REBUILT_MARKER);
+        verifyNoInteractions(bookingRepository);
+        verify(repository, never()).putBooking(anyString(), any(), any());
+    }
+
+    private static Booking booking(BookingStatus status, LocalDate endDate) {
+        return Booking.builder()
+                .id("1")
+                .username("jean")
+                .roomNumber(237L)
+                .status(status)
+                .startDate(endDate.minusDays(1))
+                .endDate(endDate)
+                .updatedDate(NOW)
+                .build();
+    }
+
+    private static UserBookings userBookings(UserBookings.Item... items) {
+        return UserBookings.builder()
+                .username("jean")
+                .bookings(List.of(items))
+                .build();
+    }
+
+    private static UserBookings.Item item(String bookingId, LocalDate endDate) {
+        return UserBookings.Item.builder()
+                .bookingId(bookingId)
+                .roomNumber(237L)
+                .status(BookingStatus.BOOKED)
+                .startDate(endDate.minusDays(1))
+                .endDate(endDate)
+                .build();
+    }
+}
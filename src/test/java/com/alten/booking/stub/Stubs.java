@@ -1,5 +1,6 @@
 package com.alten.booking.stub;
 
+import com.alten.booking.api.dto.BookingGroupRequestDTO;
 import com.alten.booking.api.dto.BookingRequestDTO;
 import com.alten.booking.api.dto.BookingResponseDTO;
 import com.alten.booking.infrastructure.repository.entity.Booking;
@@ -7,6 +8,7 @@ import com.alten.booking.infrastructure.repository.entity.BookingStatus;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class Stubs {
 
@@ -19,6 +21,23 @@ public class Stubs {
                 .build();
     }
 
+    public static BookingGroupRequestDTO bookingGroupRequestDTOStub() {
+        return BookingGroupRequestDTO.builder()
+                .username("jean")
+                .bookings(List.of(
+                        BookingGroupRequestDTO.Item.builder()
+                                .roomNumber(237L)
+                                .startDate(LocalDate.now().plusDays(5))
+                                .endDate(LocalDate.now().plusDays(7))
+                                .build(),
+                        BookingGroupRequestDTO.Item.builder()
+                                .roomNumber(238L)
+                                .startDate(LocalDate.now().plusDays(5))
+                                .endDate(LocalDate.now().plusDays(7))
+                                .build()))
+                .build();
+    }
+
     public static BookingResponseDTO bookingResponseDTOStub() {
         return BookingResponseDTO.builder()
                 .username("jean")